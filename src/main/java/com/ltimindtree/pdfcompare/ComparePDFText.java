@@ -1,155 +1,220 @@
 package com.ltimindtree.pdfcompare;
 
-import org.apache.fontbox.util.BoundingBox;
-import org.apache.pdfbox.Loader;
+import com.ltimindtree.pdfcompare.diff.SequenceDiff;
+import com.ltimindtree.pdfcompare.service.ColorMode;
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.service.ComparisonScheduler;
+import com.ltimindtree.pdfcompare.service.DiffPageSink;
+import com.ltimindtree.pdfcompare.service.PageRenderService;
+import com.ltimindtree.pdfcompare.service.PageRenderSession;
+import com.ltimindtree.pdfcompare.text.GlyphExtractor;
+import com.ltimindtree.pdfcompare.text.GlyphStore;
+import com.ltimindtree.pdfcompare.util.Images;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.*;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.pdfbox.text.TextPosition;
 
 import java.awt.*;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 public class ComparePDFText {
 
     public static final int SCALE = 4;
-    private AffineTransform flipAT;
-    private AffineTransform rotateAT;
-    private Graphics2D g2d;
-
-    public Map<Integer, List<BufferedImage>> compareFontOrText(String originalFilePath, String modifiedFilePath, boolean isFont) throws IOException {
-
-        Map<Integer, List<BufferedImage>> diffImagesMap = new HashMap<>();
-        try (PDDocument doc1 = Loader.loadPDF(new File(originalFilePath));
-             PDDocument doc2 = Loader.loadPDF(new File(modifiedFilePath))) {
-
-            PDFRenderer renderer1 = new PDFRenderer(doc1);
-            PDFRenderer renderer2 = new PDFRenderer(doc2);
-
-            for (int page = 0; page < Math.min(doc1.getNumberOfPages(), doc2.getNumberOfPages()); page++) {
-                boolean isDiff = false;
-                BufferedImage image1 = renderer1.renderImage(page, SCALE);
-                BufferedImage image2 = renderer2.renderImage(page, SCALE);
-
-                PDPage pdPage = doc2.getPage(page);
-
-                // flip y-axis
-                flipAT = new AffineTransform();
-                flipAT.translate(0, pdPage.getBBox().getHeight());
-                flipAT.scale(1, -1);
-
-                // page may be rotated
-                rotateAT = new AffineTransform();
-                int rotation = pdPage.getRotation();
-                if (rotation != 0) {
-                    PDRectangle mediaBox = pdPage.getMediaBox();
-                    switch (rotation) {
-                        case 90:
-                            rotateAT.translate(mediaBox.getHeight(), 0);
-                            break;
-                        case 270:
-                            rotateAT.translate(0, mediaBox.getWidth());
-                            break;
-                        case 180:
-                            rotateAT.translate(mediaBox.getWidth(), mediaBox.getHeight());
-                            break;
-                        default:
-                            break;
-                    }
-                    rotateAT.rotate(Math.toRadians(rotation));
-                }
+    private static final double DELETION_MARKER_WIDTH = 1.5;
+    private final PageRenderService pageRenderService;
+    private final ComparisonScheduler comparisonScheduler;
+
+    public ComparePDFText(PageRenderService pageRenderService, ComparisonScheduler comparisonScheduler) {
+        this.pageRenderService = pageRenderService;
+        this.comparisonScheduler = comparisonScheduler;
+    }
 
-                g2d = image2.createGraphics();
-                g2d.setStroke(new BasicStroke(2));
-                g2d.setColor(new Color(255, 0, 0, 51));
-                g2d.scale(SCALE, SCALE);
-
-                List<TextPosition> textPositions1 = getTextPositions(doc1, page + 1);
-                List<TextPosition> textPositions2 = getTextPositions(doc2, page + 1);
-
-                for (int i = 0; i < textPositions1.size(); i++) {
-                    TextPosition text1 = textPositions1.get(i);
-                    TextPosition text2 = textPositions2.get(i);
-
-                    AffineTransform at = text2.getTextMatrix().createAffineTransform();
-                    PDFont font = text2.getFont();
-                    BoundingBox bbox = font.getBoundingBox();
-
-                    float xAdvance = font.getWidth(text2.getCharacterCodes()[0]); // todo: should iterate all chars
-                    Rectangle2D.Float rect = new Rectangle2D.Float(0, bbox.getLowerLeftY(), xAdvance, bbox.getHeight());
-                    if (font instanceof PDType3Font) {
-                        // bbox and font matrix are unscaled
-                        at.concatenate(font.getFontMatrix().createAffineTransform());
-                    } else {
-                        // bbox and font matrix are already scaled to 1000
-                        at.scale(1 / 1000f, 1 / 1000f);
-                    }
-
-                    Shape s = at.createTransformedShape(rect);
-                    s = flipAT.createTransformedShape(s);
-                    s = rotateAT.createTransformedShape(s);
-
-                    if (!isEqual(text1, text2, isFont)) {
-                        g2d.fill(s);
-                        isDiff = true;
-                    }
+    /**
+     * Hands the differing pages to the sink as soon as they are rendered and highlighted, in page order. The pages only
+     * the longer document has are differing pages, set against a blank page and highlighted as a whole.
+     *
+     * @param originalHash SHA-256 of the original file when it is known already, for the page cache, or {@code null}
+     * @param modifiedHash SHA-256 of the modified file when it is known already, or {@code null}
+     */
+    public void compareFontOrText(String originalFilePath, String modifiedFilePath, String originalHash,
+                                  String modifiedHash, boolean isFont, ComparisonProgressListener listener,
+                                  DiffPageSink sink)
+            throws IOException, InterruptedException {
+
+        // the glyphs are compared first, only the pages which differ are rendered
+        GlyphExtractor extractor = new GlyphExtractor();
+        GlyphStore glyphs1;
+        GlyphStore glyphs2;
+        int pageCount;
+        int totalPageCount;
+        try (PDDocument doc1 = pageRenderService.load(new File(originalFilePath));
+             PDDocument doc2 = pageRenderService.load(new File(modifiedFilePath))) {
+            pageCount = Math.min(doc1.getNumberOfPages(), doc2.getNumberOfPages());
+            totalPageCount = Math.max(doc1.getNumberOfPages(), doc2.getNumberOfPages());
+            listener.pagesToCompare(totalPageCount);
+            glyphs1 = extractor.extract(doc1, pageCount);
+            glyphs2 = extractor.extract(doc2, pageCount);
+        }
+
+        List<Integer> pagesToDiff = new ArrayList<>();
+        for (int page = 0; page < pageCount; page++) {
+            if (glyphs1.samePage(glyphs2, page)) {
+                // same fonts and same glyphs in the same fonts, there is nothing to diff
+                listener.pageCompared(page, false);
+            } else {
+                pagesToDiff.add(page);
+            }
+        }
+        for (int page = pageCount; page < totalPageCount; page++) {
+            pagesToDiff.add(page);
+        }
+        if (pagesToDiff.isEmpty()) {
+            return;
+        }
+
+        try (PageRenderSession session1 = pageRenderService.open(new File(originalFilePath), originalHash);
+             PageRenderSession session2 = pageRenderService.open(new File(modifiedFilePath), modifiedHash)) {
+            // every page is a task on the comparison scheduler, which renders the page as well when it differs
+            List<Callable<BufferedImage[]>> tasks = pagesToDiff.stream()
+                    .<Callable<BufferedImage[]>>map(page -> () -> {
+                        if (page >= pageCount) {
+                            return addedOrRemovedPage(session1, session2, page);
+                        }
+                        List<Rectangle2D> boxes = highlights(extractor, glyphs1, glyphs2, page, isFont);
+                        if (Objects.isNull(boxes)) {
+                            return null;
+                        }
+                        CompletableFuture<BufferedImage> image1 = session1.render(page, SCALE * 72f, ColorMode.RGB);
+                        CompletableFuture<BufferedImage> image2 = session2.render(page, SCALE * 72f, ColorMode.RGB);
+                        // the rendered page may be shared through the page cache, the differences are drawn on a copy
+                        BufferedImage highlighted = Images.copyOf(image2.join());
+                        highlight(highlighted, boxes);
+                        return new BufferedImage[]{image1.join(), highlighted};
+                    })
+                    .toList();
+            comparisonScheduler.invokeAll(tasks, (index, images) -> {
+                int page = pagesToDiff.get(index);
+                listener.pageCompared(page, Objects.nonNull(images));
+                if (Objects.nonNull(images)) {
+                    listener.pageRendered(page);
+                    sink.addPage(page, images[0], images[1]);
                 }
+            });
+        }
+    }
+
+    /**
+     * Renders the page only one of the documents has next to a blank page of its size, the modified side highlighted as
+     * a whole.
+     */
+    private static BufferedImage[] addedOrRemovedPage(PageRenderSession session1, PageRenderSession session2, int page) {
+        BufferedImage image1;
+        BufferedImage image2;
+        if (page < session1.getNumberOfPages()) {
+            image1 = session1.render(page, SCALE * 72f, ColorMode.RGB).join();
+            image2 = Images.blankLike(image1);
+        } else {
+            // the rendered page may be shared through the page cache, the highlight is drawn on a copy
+            image2 = Images.copyOf(session2.render(page, SCALE * 72f, ColorMode.RGB).join());
+            image1 = Images.blankLike(image2);
+        }
+        highlight(image2, List.of(new Rectangle2D.Double(0, 0,
+                (double) image2.getWidth() / SCALE, (double) image2.getHeight() / SCALE)));
+        return new BufferedImage[]{image1, image2};
+    }
 
-                g2d.dispose();
-                if (isDiff) {
-                    diffImagesMap.put(page + 1, Arrays.asList(image1, image2));
+    /**
+     * Diffs the glyphs of a page, differences are highlighted on the modified page only.
+     *
+     * @return boxes of the differing glyphs in points, {@code null} when the page does not differ
+     */
+    private static List<Rectangle2D> highlights(GlyphExtractor extractor, GlyphStore glyphs1, GlyphStore glyphs2,
+                                                int page, boolean isFont) {
+        int start1 = glyphs1.pageStart(page);
+        int start2 = glyphs2.pageStart(page);
+        int length2 = glyphs2.pageEnd(page) - start2;
+        List<SequenceDiff.Edit> edits = SequenceDiff.diff(glyphs1.pageSymbols(page), glyphs2.pageSymbols(page));
+
+        List<Rectangle2D> boxes = new ArrayList<>();
+        if (isFont) {
+            forEachMatch(edits, glyphs1.pageEnd(page) - start1, (i, j) -> {
+                if (extractor.fontFamily(glyphs1.fontId(start1 + i))
+                        != extractor.fontFamily(glyphs2.fontId(start2 + j))) {
+                    boxes.add(glyphs2.bounds(start2 + j));
+                }
+            });
+        } else {
+            for (SequenceDiff.Edit edit : edits) {
+                if (edit.operation() == SequenceDiff.Operation.DELETE) {
+                    deletionMarker(glyphs2, start2, length2, edit.modifiedStart()).ifPresent(boxes::add);
+                }
+                for (int j = edit.modifiedStart(); j < edit.modifiedEnd(); j++) {
+                    boxes.add(glyphs2.bounds(start2 + j));
                 }
             }
         }
-        return diffImagesMap.isEmpty() ? new HashMap<>() : diffImagesMap;
+
+        boolean isDiff = isFont ? !boxes.isEmpty() : !edits.isEmpty();
+        return isDiff ? boxes : null;
     }
 
-    private static boolean isEqual(TextPosition pos1, TextPosition pos2, boolean isFont) {
-        boolean isEqual = pos1.getUnicode().equals(pos2.getUnicode());
-        if (isFont) {
-            String pos1FName = getFontName(pos1.getFont());
-            String pos2FName = getFontName(pos2.getFont());
-            assert pos1FName != null;
-            isEqual = pos1FName.equals(pos2FName);
+    /**
+     * Marks where deleted glyphs were on the modified page: a thin bar before the glyph following them, or after the
+     * last glyph of the page.
+     */
+    private static Optional<Rectangle2D> deletionMarker(GlyphStore glyphs, int pageStart, int pageLength, int at) {
+        if (pageLength == 0) {
+            return Optional.empty();
         }
-        return isEqual;
+        Rectangle2D glyph = glyphs.bounds(pageStart + Math.min(at, pageLength - 1));
+        double x = at < pageLength ? glyph.getX() : glyph.getMaxX();
+        return Optional.of(new Rectangle2D.Double(x - DELETION_MARKER_WIDTH / 2, glyph.getY(),
+                DELETION_MARKER_WIDTH, glyph.getHeight()));
     }
 
-    private static String getFontName(PDFont pos1Font) {
-        if (pos1Font instanceof PDType3Font t3Font) {
-            return t3Font.getName();
-        } else if (pos1Font instanceof PDVectorFont) {
-            if (pos1Font instanceof PDTrueTypeFont ttFont) {
-                return ttFont.getName();
-            }
-            if (pos1Font instanceof PDType0Font t0font) {
-                return t0font.getDescendantFont().getName();
+    /**
+     * Calls {@code matched} with the indices of the glyph pairs the edits leave unchanged.
+     */
+    private static void forEachMatch(List<SequenceDiff.Edit> edits, int originalLength, IntBiConsumer matched) {
+        int i = 0;
+        int j = 0;
+        for (SequenceDiff.Edit edit : edits) {
+            for (; i < edit.originalStart(); i++, j++) {
+                matched.accept(i, j);
             }
+            i = edit.originalEnd();
+            j = edit.modifiedEnd();
+        }
+        for (; i < originalLength; i++, j++) {
+            matched.accept(i, j);
         }
-        return null;
     }
 
-    private static List<TextPosition> getTextPositions(PDDocument document, int pageNum) throws IOException {
-        List<TextPosition> textPositions = new ArrayList<>();
-        PDFTextStripper stripper = new PDFTextStripper() {
+    /**
+     * @param glyphs boxes of the glyphs in points on the displayed page
+     */
+    private static void highlight(BufferedImage image, List<Rectangle2D> glyphs) {
+        if (glyphs.isEmpty()) {
+            return;
+        }
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setStroke(new BasicStroke(2));
+            g2d.setColor(new Color(255, 0, 0, 51));
+            g2d.scale(SCALE, SCALE);
+            glyphs.forEach(g2d::fill);
+        } finally {
+            g2d.dispose();
+        }
+    }
 
-            @Override
-            protected void writeString(String string, List<TextPosition> text) {
-                textPositions.addAll(text);
-            }
-        };
-        stripper.setStartPage(pageNum);
-        stripper.setEndPage(pageNum);
-        stripper.getText(document);
-        return textPositions;
+    @FunctionalInterface
+    private interface IntBiConsumer {
+        void accept(int i, int j);
     }
 }
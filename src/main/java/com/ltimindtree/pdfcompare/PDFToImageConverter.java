@@ -1,15 +1,18 @@
 package com.ltimindtree.pdfcompare;
 
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.PageRenderService;
+import com.ltimindtree.pdfcompare.service.PageRenderSession;
+import com.ltimindtree.pdfcompare.service.impl.PageRenderServiceImpl;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 @Slf4j
@@ -25,30 +28,36 @@ public class PDFToImageConverter {
         arr.add("Original");
         arr.add("Modified");
 
-        for (String s : arr) {
-            log.info("Converting the PDF file to Images -->  {}", s);
-            String sourcePdfFilePath = USER_HOME_DIR + "/Downloads/ConvertedImageFolder/" + s + ".pdf";
-            new File(USER_HOME_DIR + "/Downloads/ConvertToImageANDProcessingFolder/" + s).mkdirs();
-            String outputFolderPathForImage = USER_HOME_DIR + "/Downloads/ConvertToImageANDProcessingFolder/" + s + "/";
-
-            try {
-                PDDocument document = Loader.loadPDF(new File(sourcePdfFilePath));
-                PDFRenderer pdfRenderer = new PDFRenderer(document);
+        PageRenderServiceImpl pageRenderService = new PageRenderServiceImpl(new PdfCompareProperties());
+        try {
+            for (String s : arr) {
+                convertPdfToImage(pageRenderService, s);
+            }
+        } finally {
+            pageRenderService.shutdown();
+        }
+    }
 
-                // Iterate over each page and convert it to an image
-                for (int page = 0; page < document.getNumberOfPages(); ++page) {
-                    BufferedImage image = pdfRenderer.renderImageWithDPI(page, 300);
+    private void convertPdfToImage(PageRenderService pageRenderService, String s) {
+        log.info("Converting the PDF file to Images -->  {}", s);
+        String sourcePdfFilePath = USER_HOME_DIR + "/Downloads/ConvertedImageFolder/" + s + ".pdf";
+        new File(USER_HOME_DIR + "/Downloads/ConvertToImageANDProcessingFolder/" + s).mkdirs();
+        String outputFolderPathForImage = USER_HOME_DIR + "/Downloads/ConvertToImageANDProcessingFolder/" + s + "/";
 
-                    // Output the image to a file
-                    File outputImageFile = new File(outputFolderPathForImage + "page_" + (page + 1) + ".png");
-                    ImageIO.write(image, "png", outputImageFile);
-                }
+        try (PageRenderSession session = pageRenderService.open(new File(sourcePdfFilePath))) {
+            // Iterate over each page and convert it to an image, pages are rendered in parallel
+            Iterator<BufferedImage> pages = session.pages(300, session.getNumberOfPages());
+            for (int page = 0; pages.hasNext(); ++page) {
+                BufferedImage image = pages.next();
 
-                document.close();
-                log.info("Conversion completed successfully.");
-            } catch (IOException e) {
-                log.error("Exception while converting the PDF file", e);
+                // Output the image to a file
+                File outputImageFile = new File(outputFolderPathForImage + "page_" + (page + 1) + ".png");
+                ImageIO.write(image, "png", outputImageFile);
             }
+
+            log.info("Conversion completed successfully.");
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Exception while converting the PDF file", e);
         }
     }
 
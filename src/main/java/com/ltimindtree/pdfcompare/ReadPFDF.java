@@ -1,13 +1,14 @@
 package com.ltimindtree.pdfcompare;
 
+import com.ltimindtree.pdfcompare.text.PageTextWriter;
+import com.ltimindtree.pdfcompare.util.PdfDocumentLoader;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 
 @Slf4j
 public class ReadPFDF {
@@ -16,24 +17,14 @@ public class ReadPFDF {
 	public void ReadPDFfile(String pdfFileNametoRead, String textFileName) throws IOException {
 		
 		File file = new File(pdfFileNametoRead);
-		PDDocument document = Loader.loadPDF(file);
-
-		// Instantiate PDFTextStripper class
-		PDFTextStripper pdfStripper = new PDFTextStripper();
-
-		// Retrieving text from PDF document
-		String text = pdfStripper.getText(document);
-		System.out.println(text);
 
+		// the text goes straight to the file a chunk of pages at a time, pages end with a form feed
 		String home = System.getProperty("user.home");
-		try {
-			FileWriter myWriter = new FileWriter(home + "/Downloads/" + textFileName + "text.txt");
-			myWriter.write(text);
-			myWriter.close();
-			log.info("Successfully wrote to the file.");
+		try (Writer myWriter = new BufferedWriter(new FileWriter(home + "/Downloads/" + textFileName + "text.txt"))) {
+			int pageCount = PageTextWriter.write(file, myWriter, new PdfDocumentLoader(false));
+			log.info("Successfully wrote {} pages to the file.", pageCount);
 		} catch (IOException e) {
 			log.error("An error occurred.", e);
 		}
-		document.close();
 	}
 }
@@ -1,17 +1,16 @@
 package com.ltimindtree.pdfcompare;
 
+import com.ltimindtree.pdfcompare.diff.StreamingWordDiff;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 @Slf4j
 public class TextFileComparison {
 
 	//public void CompareTextFiles(String[] urls) {
 		public void CompareTextFiles() {
-		BufferedWriter writer;
 		
 		
 		
@@ -24,55 +23,35 @@ public class TextFileComparison {
 			String filePath1 = home + "/Downloads/" + "Originaltext.txt";
 			String filePath2 = home + "/Downloads/" + "Modifiedtext.txt";
 
-			try {
-				Set<String> words1 = getWords(filePath1);
-				Set<String> words2 = getWords(filePath2);
-
-				// Find words unique to each file
-				Set<String> uniqueToFirstFile = new HashSet<>(words1);
-				uniqueToFirstFile.removeAll(words2);
-
-				Set<String> uniqueToSecondFile = new HashSet<>(words2);
-				uniqueToSecondFile.removeAll(words1);
-				String filePath = home + "/Downloads/" + filename + "uniqueText.txt";
-				writer = new BufferedWriter(new FileWriter(filePath));
-								
-				// Display the results
-				System.out.println("Words unique to " + filePath1 + ":");
-				displayWords(uniqueToFirstFile);
-				writer.write("Words unique to " + filePath1 + ":" +uniqueToFirstFile + "\n");
-			//	writer.close();
-				
-				System.out.println("\nWords unique to " + filePath2 + ":");
-				displayWords(uniqueToSecondFile);
-				writer.write("Words unique to " + filePath2 + ":" +uniqueToSecondFile + "\n");
-				writer.close();
+			String filePath = home + "/Downloads/" + filename + "uniqueText.txt";
+
+			// the files are streamed, only a window of words of each is held in memory
+			try (Reader reader1 = new FileReader(filePath1);
+				 Reader reader2 = new FileReader(filePath2);
+				 BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
+				// Words removed from the first file and added by the second, in text order
+				writer.write("Words changed from " + filePath1 + " to " + filePath2 + ":\n");
+				int editCount = StreamingWordDiff.diff(reader1, reader2, StreamingWordDiff.DEFAULT_WINDOW,
+						(operation, removed, added) -> {
+							writeWords(writer, "- ", removed);
+							writeWords(writer, "+ ", added);
+						});
+				log.info("{} changes written to {}", editCount, filePath);
 			} catch (IOException e) {
 				log.error("Exception occurred.", e);
 			}
 		}
 //	}
 
-	private static Set<String> getWords(String filePath) throws IOException {
-		Set<String> words = new HashSet<>();
-		try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				// Split the line into words using space as a delimiter
-				String[] lineWords = line.split("\\s+");
-				for (String word : lineWords) {
-					// Add the lowercase version of the word to the set
-					words.add(word.toLowerCase());
-				}
-			}
+	private static void writeWords(Writer writer, String prefix, List<StreamingWordDiff.Word> words) throws IOException {
+		if (words.isEmpty()) {
+			return;
 		}
-		return words;
-	}
-
-	private static void displayWords(Set<String> words) {
-		for (String word : words) {
-			System.out.println(word);
+		writer.write(prefix + "page " + words.get(0).page() + ":");
+		for (StreamingWordDiff.Word word : words) {
+			writer.write(" " + word.text());
 		}
+		writer.write("\n");
 	}
 
 }
@@ -7,6 +7,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletionStage;
+
 @Aspect
 @Component
 public class MethodExecutionTimeAspect {
@@ -17,9 +19,18 @@ public class MethodExecutionTimeAspect {
     public Object measureMethodExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
         long startTime = System.currentTimeMillis();
         Object result = joinPoint.proceed();
+        if (result instanceof CompletionStage<?> completion) {
+            // an asynchronous method is done once its result completes, not when it returns
+            completion.whenComplete((value, failure) -> logExecutionTime(joinPoint, startTime));
+        } else {
+            logExecutionTime(joinPoint, startTime);
+        }
+        return result;
+    }
+
+    private static void logExecutionTime(ProceedingJoinPoint joinPoint, long startTime) {
         long endTime = System.currentTimeMillis();
         long executionTime = endTime - startTime;
         logger.info(joinPoint.getSignature() + " executed in " + executionTime + "ms");
-        return result;
     }
 }
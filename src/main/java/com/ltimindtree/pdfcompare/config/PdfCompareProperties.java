@@ -0,0 +1,238 @@
+package com.ltimindtree.pdfcompare.config;
+
+import com.ltimindtree.pdfcompare.service.ColorMode;
+import com.ltimindtree.pdfcompare.service.DiffFormat;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pdf-compare")
+public class PdfCompareProperties {
+
+    private final Render render = new Render();
+    private final Image image = new Image();
+    private final PageCache pageCache = new PageCache();
+    private final ResultCache resultCache = new ResultCache();
+    private final Jobs jobs = new Jobs();
+    private final Scheduler scheduler = new Scheduler();
+
+    @Getter
+    @Setter
+    public static class Render {
+        /**
+         * Number of threads rendering pages, shared by all comparisons.
+         */
+        private int poolSize = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Number of pages of one document rendered ahead of the page currently being consumed.
+         */
+        private int pagesInFlight = 4;
+
+        /**
+         * Read documents through memory mapped files rather than buffered reads, neither copies them into the heap.
+         */
+        private boolean memoryMapped = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Image {
+        /**
+         * Resolution pages are rendered at for the image comparison and the diff PDF.
+         */
+        private float dpi = 300;
+
+        /**
+         * Edge length in pixels of the tiles the pixel diff engine compares.
+         */
+        private int tileSize = 64;
+
+        /**
+         * Fraction of the maximum color distance under which two pixels are considered equal.
+         */
+        private double pixelTolerance = 0.1;
+
+        /**
+         * Skip rendering of pages whose content streams, resources, boxes and rotation hash the same in both documents.
+         */
+        private boolean fingerprintEnabled = true;
+
+        /**
+         * Pixels beyond the tolerance a tile needs to count as different, higher values ignore anti-aliasing noise.
+         */
+        private int minDifferingPixels = 1;
+
+        /**
+         * Compare pixels with the JDK Vector API when the JVM runs with {@code --add-modules jdk.incubator.vector}.
+         */
+        private boolean vectorKernelEnabled = true;
+
+        /**
+         * Number of threads comparing the bands of large pages, shared by all comparisons. {@code 1} compares every page
+         * on the thread of its comparison.
+         */
+        private int bandParallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Pages of at least this many pixels at the comparison resolution are split into bands compared in parallel.
+         */
+        private long bandMinPixels = 4_000_000;
+
+        /**
+         * Color mode of the comparison when the request does not give one, {@code gray} and {@code binary} take 4 and
+         * 32 times less memory per page than {@code rgb}.
+         */
+        private ColorMode colorMode = ColorMode.RGB;
+
+        /**
+         * Default format of the result, {@code raster} or {@code vector} diff PDF or {@code manifest}; the
+         * {@code format} request parameter overrides it.
+         */
+        private DiffFormat diffFormat = DiffFormat.RASTER;
+
+        /**
+         * Number of threads encoding the page images of raster diff PDFs, shared by all comparisons. Each writer keeps
+         * as many pages waiting for their encoding.
+         */
+        private int encodePoolSize = 2;
+
+        private final Prefilter prefilter = new Prefilter();
+
+        private final Manifest manifest = new Manifest();
+    }
+
+    @Getter
+    @Setter
+    public static class Manifest {
+        /**
+         * Edge length in pixels, at the comparison resolution, of the cells of the difference mask.
+         */
+        private int maskCellSize = 8;
+
+        /**
+         * Resolution of the thumbnails of the differing regions.
+         */
+        private float thumbnailDpi = 36;
+    }
+
+    @Getter
+    @Setter
+    public static class Prefilter {
+        /**
+         * Compare pages at a low resolution first and render at full resolution only the pages whose low resolution
+         * renders are not identical. Pages are skipped only on an exact match, the result is the one of the full
+         * resolution comparison.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Resolution of the first, cheap pass.
+         */
+        private float dpi = 72;
+    }
+
+    @Getter
+    @Setter
+    public static class PageCache {
+        /**
+         * Keep rendered pages, keyed by the SHA-256 of the document, for later comparisons of the same document.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Size of the rendered pages kept in memory, least recently used pages are moved to disk beyond it.
+         */
+        private DataSize memoryMaxSize = DataSize.ofMegabytes(256);
+
+        /**
+         * Size of the compressed pages kept on disk, least recently used pages are deleted beyond it. {@code 0}
+         * disables the disk tier.
+         */
+        private DataSize diskMaxSize = DataSize.ofGigabytes(2);
+
+        /**
+         * Folder of the disk tier.
+         */
+        private String directory = System.getProperty("user.home") + "/comparePDF/page-cache";
+    }
+
+    @Getter
+    @Setter
+    public static class ResultCache {
+        /**
+         * Answer a comparison of documents already compared with the same options from the stored result.
+         */
+        private boolean enabled = true;
+
+        /**
+         * How long a result is kept. Its diff PDF is deleted after the result and after the jobs it was returned to.
+         */
+        private Duration ttl = Duration.ofHours(1);
+
+        /**
+         * Size of the diff PDFs kept for cached results, least recently used results are deleted beyond it.
+         */
+        private DataSize maxDiskSize = DataSize.ofGigabytes(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Jobs {
+        /**
+         * Number of comparison jobs running at the same time, their pages share the render pool.
+         */
+        private int poolSize = 2;
+
+        /**
+         * Number of document pairs compared at the same time, shared by all jobs.
+         */
+        private int pairPoolSize = 2;
+
+        /**
+         * Number of pairs waiting for a pair thread, further pairs are compared on the thread of their job.
+         */
+        private int pairQueueCapacity = 100;
+
+        /**
+         * Number of jobs waiting for a worker, further submissions are rejected.
+         */
+        private int queueCapacity = 100;
+
+        /**
+         * How long a finished job, its status and results, can still be queried. The diff PDFs of the results are kept
+         * at least as long.
+         */
+        private Duration retention = Duration.ofHours(1);
+
+        /**
+         * Number of threads sending job events to SSE clients, a slow client holds one of them but never a comparison.
+         */
+        private int eventPoolSize = 2;
+    }
+
+    @Getter
+    @Setter
+    public static class Scheduler {
+        /**
+         * Number of threads comparing pages, shared by all comparisons which take turns on them.
+         */
+        private int poolSize = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Number of tasks of one comparison waiting for a thread, the comparison submits more as they are taken. Their
+         * results wait for the comparison too, at most {@code queueDepth + poolSize} tasks are ahead of it.
+         */
+        private int queueDepth = 8;
+
+        /**
+         * Number of comparisons sharing the threads at the same time, further ones are rejected.
+         */
+        private int maxRequests = 64;
+    }
+}
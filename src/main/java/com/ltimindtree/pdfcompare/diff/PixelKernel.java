@@ -0,0 +1,23 @@
+package com.ltimindtree.pdfcompare.diff;
+
+/**
+ * Inner loops of the pixel diff over packed {@code int} RGB pixels.
+ *
+ * @see ScalarPixelKernel
+ * @see VectorPixelKernel
+ */
+public interface PixelKernel {
+
+    /**
+     * Counts the pixels of {@code a[aFrom, aFrom + length)} and {@code b[bFrom, bFrom + length)} which are not equal
+     * once masked with {@code mask}.
+     */
+    int countMismatches(int[] a, int aFrom, int[] b, int bFrom, int length, int mask);
+
+    /**
+     * Counts the pixels whose squared RGB distance exceeds {@code squaredThreshold}, the anti-aliasing tolerance.
+     *
+     * @param bounds receives the offsets, relative to the start of the range, of the first and last such pixel
+     */
+    int countDifferences(int[] a, int aFrom, int[] b, int bFrom, int length, int squaredThreshold, int[] bounds);
+}
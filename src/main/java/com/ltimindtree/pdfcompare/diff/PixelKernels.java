@@ -0,0 +1,31 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public final class PixelKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private PixelKernels() {
+    }
+
+    /**
+     * Returns the Vector API kernel when it is preferred and the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}, the scalar kernel otherwise.
+     */
+    public static PixelKernel select(boolean preferVector) {
+        if (preferVector && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                PixelKernel kernel = (PixelKernel) Class.forName("com.ltimindtree.pdfcompare.diff.VectorPixelKernel")
+                        .getDeclaredConstructor()
+                        .newInstance();
+                log.info("Using the {} pixel kernel", VECTOR_MODULE);
+                return kernel;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Could not load the {} pixel kernel, falling back to scalar", VECTOR_MODULE, e);
+            }
+        }
+        return new ScalarPixelKernel();
+    }
+}
@@ -0,0 +1,277 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.Arrays;
+
+/**
+ * Row-wise access to the backing array of a {@link BufferedImage}, so that tiles can be compared on the raw
+ * {@link DataBufferInt} / {@link DataBufferByte} data without {@code getRGB} conversions.
+ */
+abstract class RasterRows {
+
+    final int width;
+    final int height;
+
+    RasterRows(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    static RasterRows of(BufferedImage image, PixelKernel kernel) {
+        WritableRaster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        int translateX = -raster.getSampleModelTranslateX();
+        int translateY = -raster.getSampleModelTranslateY();
+
+        if (dataBuffer instanceof DataBufferInt intBuffer
+                && sampleModel instanceof SinglePixelPackedSampleModel packed
+                && dataBuffer.getNumBanks() == 1) {
+            int offset = intBuffer.getOffset() + translateY * packed.getScanlineStride() + translateX;
+            return new IntRows(image.getWidth(), image.getHeight(), intBuffer.getData(), offset, packed.getScanlineStride(),
+                    image.getColorModel().hasAlpha() ? 0xFFFFFFFF : 0x00FFFFFF, kernel);
+        }
+        if (dataBuffer instanceof DataBufferByte byteBuffer
+                && sampleModel instanceof PixelInterleavedSampleModel interleaved
+                && dataBuffer.getNumBanks() == 1) {
+            int pixelStride = interleaved.getPixelStride();
+            int offset = byteBuffer.getOffset() + translateY * interleaved.getScanlineStride() + translateX * pixelStride;
+            int[] colorBandOffsets = Arrays.copyOf(interleaved.getBandOffsets(), image.getColorModel().getNumColorComponents());
+            return new ByteRows(image.getWidth(), image.getHeight(), byteBuffer.getData(), offset,
+                    interleaved.getScanlineStride(), pixelStride, colorBandOffsets);
+        }
+        if (dataBuffer instanceof DataBufferByte byteBuffer
+                && sampleModel instanceof MultiPixelPackedSampleModel bitPacked
+                && bitPacked.getPixelBitStride() == 1) {
+            return new BitRows(image.getWidth(), image.getHeight(), byteBuffer.getData(), byteBuffer.getOffset(),
+                    bitPacked.getScanlineStride(), translateX, translateY, bitPacked.getDataBitOffset());
+        }
+
+        // any other layout is compared on a packed RGB copy
+        return of(toIntRgb(image), kernel);
+    }
+
+    static BufferedImage toIntRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return copy;
+    }
+
+    /**
+     * Whether the other raster has the same pixel layout, so elements can be compared one to one.
+     */
+    abstract boolean isCompatible(RasterRows other);
+
+    /**
+     * Exact comparison of the pixels {@code [x, x + length)} of row {@code y}.
+     */
+    abstract boolean rowEquals(RasterRows other, int y, int x, int length);
+
+    /**
+     * Counts the pixels of row {@code y} in {@code [x, x + length)} that differ by more than the tolerance.
+     *
+     * @param bounds receives {@code [firstX, lastX]} of the differing pixels
+     */
+    abstract int rowDifference(RasterRows other, int y, int x, int length, double tolerance, int[] bounds);
+
+    /**
+     * Squared color distance above which two pixels differ, the same measure as the romankh3 image-comparison
+     * library: a fraction of the distance between black and white. Distances are whole numbers, so the threshold
+     * is rounded down.
+     */
+    static int squaredThreshold(double tolerance, int colorBands) {
+        double maxDistance = Math.sqrt(255d * 255d * colorBands);
+        return (int) Math.floor(Math.pow(tolerance * maxDistance, 2));
+    }
+
+    static final class IntRows extends RasterRows {
+        final int[] data;
+        final int offset;
+        final int stride;
+        final int mask;
+        final PixelKernel kernel;
+
+        IntRows(int width, int height, int[] data, int offset, int stride, int mask, PixelKernel kernel) {
+            super(width, height);
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+            this.mask = mask;
+            this.kernel = kernel;
+        }
+
+        int index(int x, int y) {
+            return offset + y * stride + x;
+        }
+
+        @Override
+        boolean isCompatible(RasterRows other) {
+            return other instanceof IntRows intRows && intRows.mask == mask;
+        }
+
+        @Override
+        boolean rowEquals(RasterRows other, int y, int x, int length) {
+            IntRows that = (IntRows) other;
+            int from = index(x, y);
+            int thatFrom = that.index(x, y);
+            if (mask == 0xFFFFFFFF) {
+                return Arrays.mismatch(data, from, from + length, that.data, thatFrom, thatFrom + length) < 0;
+            }
+            // the unused high byte of TYPE_INT_RGB pixels is ignored
+            return kernel.countMismatches(data, from, that.data, thatFrom, length, mask) == 0;
+        }
+
+        @Override
+        int rowDifference(RasterRows other, int y, int x, int length, double tolerance, int[] bounds) {
+            IntRows that = (IntRows) other;
+            int count = kernel.countDifferences(data, index(x, y), that.data, that.index(x, y), length,
+                    squaredThreshold(tolerance, 3), bounds);
+            bounds[0] += x;
+            bounds[1] += x;
+            return count;
+        }
+    }
+
+    static final class ByteRows extends RasterRows {
+        final byte[] data;
+        final int offset;
+        final int stride;
+        final int pixelStride;
+        final int[] colorBandOffsets;
+
+        ByteRows(int width, int height, byte[] data, int offset, int stride, int pixelStride, int[] colorBandOffsets) {
+            super(width, height);
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+            this.pixelStride = pixelStride;
+            this.colorBandOffsets = colorBandOffsets;
+        }
+
+        int index(int x, int y) {
+            return offset + y * stride + x * pixelStride;
+        }
+
+        @Override
+        boolean isCompatible(RasterRows other) {
+            return other instanceof ByteRows byteRows
+                    && byteRows.pixelStride == pixelStride
+                    && Arrays.equals(byteRows.colorBandOffsets, colorBandOffsets);
+        }
+
+        @Override
+        boolean rowEquals(RasterRows other, int y, int x, int length) {
+            ByteRows that = (ByteRows) other;
+            int from = index(x, y);
+            int thatFrom = that.index(x, y);
+            return Arrays.mismatch(data, from, from + length * pixelStride,
+                    that.data, thatFrom, thatFrom + length * pixelStride) < 0;
+        }
+
+        @Override
+        int rowDifference(RasterRows other, int y, int x, int length, double tolerance, int[] bounds) {
+            ByteRows that = (ByteRows) other;
+            int from = index(x, y);
+            int thatFrom = that.index(x, y);
+            int threshold = squaredThreshold(tolerance, colorBandOffsets.length);
+            int count = 0;
+            int first = -1;
+            int last = -1;
+            for (int i = 0; i < length; i++) {
+                int distance = 0;
+                for (int bandOffset : colorBandOffsets) {
+                    int delta = (data[from + i * pixelStride + bandOffset] & 0xFF)
+                            - (that.data[thatFrom + i * pixelStride + bandOffset] & 0xFF);
+                    distance += delta * delta;
+                }
+                if (distance > threshold) {
+                    if (first < 0) {
+                        first = i;
+                    }
+                    last = i;
+                    count++;
+                }
+            }
+            bounds[0] = x + first;
+            bounds[1] = x + last;
+            return count;
+        }
+    }
+
+    static final class BitRows extends RasterRows {
+        final byte[] data;
+        final int offset;
+        final int stride;
+        final int translateX;
+        final int translateY;
+        final int dataBitOffset;
+
+        BitRows(int width, int height, byte[] data, int offset, int stride, int translateX, int translateY, int dataBitOffset) {
+            super(width, height);
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+            this.translateX = translateX;
+            this.translateY = translateY;
+            this.dataBitOffset = dataBitOffset;
+        }
+
+        int bit(int x, int y) {
+            int bitIndex = dataBitOffset + x + translateX;
+            int value = data[offset + (y + translateY) * stride + (bitIndex >> 3)];
+            return (value >> (7 - (bitIndex & 7))) & 1;
+        }
+
+        @Override
+        boolean isCompatible(RasterRows other) {
+            return other instanceof BitRows;
+        }
+
+        @Override
+        boolean rowEquals(RasterRows other, int y, int x, int length) {
+            BitRows that = (BitRows) other;
+            if (isByteAligned(x, length) && that.isByteAligned(x, length)) {
+                int from = offset + (y + translateY) * stride + ((dataBitOffset + x + translateX) >> 3);
+                int thatFrom = that.offset + (y + that.translateY) * that.stride + ((that.dataBitOffset + x + that.translateX) >> 3);
+                return Arrays.mismatch(data, from, from + length / 8, that.data, thatFrom, thatFrom + length / 8) < 0;
+            }
+            for (int i = x; i < x + length; i++) {
+                if (bit(i, y) != that.bit(i, y)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isByteAligned(int x, int length) {
+            return ((dataBitOffset + x + translateX) & 7) == 0 && (length & 7) == 0;
+        }
+
+        @Override
+        int rowDifference(RasterRows other, int y, int x, int length, double tolerance, int[] bounds) {
+            // black and white pixels are either equal or completely different, the tolerance does not apply
+            BitRows that = (BitRows) other;
+            int count = 0;
+            int first = -1;
+            int last = -1;
+            for (int i = x; i < x + length; i++) {
+                if (bit(i, y) != that.bit(i, y)) {
+                    if (first < 0) {
+                        first = i;
+                    }
+                    last = i;
+                    count++;
+                }
+            }
+            bounds[0] = first;
+            bounds[1] = last;
+            return count;
+        }
+    }
+}
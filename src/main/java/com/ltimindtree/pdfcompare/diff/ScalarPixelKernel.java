@@ -0,0 +1,42 @@
+package com.ltimindtree.pdfcompare.diff;
+
+/**
+ * Plain Java {@link PixelKernel}, used when the Vector API is not available.
+ */
+public class ScalarPixelKernel implements PixelKernel {
+
+    @Override
+    public int countMismatches(int[] a, int aFrom, int[] b, int bFrom, int length, int mask) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (((a[aFrom + i] ^ b[bFrom + i]) & mask) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int countDifferences(int[] a, int aFrom, int[] b, int bFrom, int length, int squaredThreshold, int[] bounds) {
+        int count = 0;
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < length; i++) {
+            int rgb1 = a[aFrom + i];
+            int rgb2 = b[bFrom + i];
+            int red = ((rgb1 >> 16) & 0xFF) - ((rgb2 >> 16) & 0xFF);
+            int green = ((rgb1 >> 8) & 0xFF) - ((rgb2 >> 8) & 0xFF);
+            int blue = (rgb1 & 0xFF) - (rgb2 & 0xFF);
+            if (red * red + green * green + blue * blue > squaredThreshold) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+                count++;
+            }
+        }
+        bounds[0] = first;
+        bounds[1] = last;
+        return count;
+    }
+}
@@ -0,0 +1,195 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Myers' O(ND) difference algorithm, in its linear space variant, over sequences of interned symbols such as the
+ * glyphs of a page. The cost grows with the size of the change rather than with the length of the sequences.
+ */
+public final class SequenceDiff {
+
+    public enum Operation {
+        INSERT, DELETE, REPLACE
+    }
+
+    /**
+     * A run of changed symbols, ranges are half open. An insert has an empty original range, a delete an empty modified
+     * range.
+     */
+    public record Edit(Operation operation, int originalStart, int originalEnd, int modifiedStart, int modifiedEnd) {
+    }
+
+    private final int[] original;
+    private final int[] modified;
+    private final int maxCost;
+    private final boolean[] deleted;
+    private final boolean[] inserted;
+    private final int[] forward;
+    private final int[] backward;
+
+    private SequenceDiff(int[] original, int[] modified, int maxCost) {
+        this.original = original;
+        this.modified = modified;
+        this.maxCost = maxCost;
+        this.deleted = new boolean[original.length];
+        this.inserted = new boolean[modified.length];
+        int max = original.length + modified.length + 1;
+        this.forward = new int[2 * max + 2];
+        this.backward = new int[2 * max + 2];
+    }
+
+    /**
+     * @return the shortest edit script turning {@code original} into {@code modified}, in sequence order; deletes
+     * directly followed by inserts are reported as one replace
+     */
+    public static List<Edit> diff(int[] original, int[] modified) {
+        return diff(original, modified, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #diff(int[], int[])}, but a part of the sequences which takes more than {@code maxCost} edits on
+     * either side of its middle snake is replaced as a whole instead of diffed further. Sequences which are mostly
+     * different then cost O((N+M) maxCost) rather than O((N+M) D), the edit script may no longer be the shortest.
+     */
+    public static List<Edit> diff(int[] original, int[] modified, int maxCost) {
+        SequenceDiff diff = new SequenceDiff(original, modified, maxCost);
+        diff.compare(0, original.length, 0, modified.length);
+        return diff.edits();
+    }
+
+    private void compare(int originalStart, int originalEnd, int modifiedStart, int modifiedEnd) {
+        // common prefix and suffix are no part of the edit
+        while (originalStart < originalEnd && modifiedStart < modifiedEnd
+                && original[originalStart] == modified[modifiedStart]) {
+            originalStart++;
+            modifiedStart++;
+        }
+        while (originalStart < originalEnd && modifiedStart < modifiedEnd
+                && original[originalEnd - 1] == modified[modifiedEnd - 1]) {
+            originalEnd--;
+            modifiedEnd--;
+        }
+
+        if (originalStart == originalEnd) {
+            for (int i = modifiedStart; i < modifiedEnd; i++) {
+                inserted[i] = true;
+            }
+        } else if (modifiedStart == modifiedEnd) {
+            for (int i = originalStart; i < originalEnd; i++) {
+                deleted[i] = true;
+            }
+        } else {
+            int[] middle = middleSnake(originalStart, originalEnd, modifiedStart, modifiedEnd);
+            if (Objects.isNull(middle)) {
+                // too different to be worth the search, the whole part is replaced
+                for (int i = originalStart; i < originalEnd; i++) {
+                    deleted[i] = true;
+                }
+                for (int i = modifiedStart; i < modifiedEnd; i++) {
+                    inserted[i] = true;
+                }
+                return;
+            }
+            compare(originalStart, middle[0], modifiedStart, middle[1]);
+            compare(middle[0], originalEnd, middle[1], modifiedEnd);
+        }
+    }
+
+    /**
+     * Searches the edit graph from both corners at once until the paths overlap.
+     *
+     * @return {@code [x, y]} of a point on an optimal path which splits it into two halves of about equal cost,
+     * {@code null} when either half costs more than {@code maxCost}
+     */
+    private int[] middleSnake(int originalStart, int originalEnd, int modifiedStart, int modifiedEnd) {
+        int max = original.length + modified.length + 1;
+        int forwardK = originalStart - modifiedStart;
+        int backwardK = originalEnd - modifiedEnd;
+        int delta = (originalEnd - originalStart) - (modifiedEnd - modifiedStart);
+        boolean oddDelta = (delta & 1) != 0;
+        int forwardOffset = max - forwardK;
+        int backwardOffset = max - backwardK;
+        int maxD = ((originalEnd - originalStart + modifiedEnd - modifiedStart) / 2) + 1;
+
+        forward[forwardOffset + forwardK + 1] = originalStart;
+        backward[backwardOffset + backwardK - 1] = originalEnd;
+
+        for (int d = 0; d <= maxD; d++) {
+            if (d > maxCost) {
+                return null;
+            }
+            for (int k = forwardK - d; k <= forwardK + d; k += 2) {
+                int x;
+                if (k == forwardK - d) {
+                    x = forward[forwardOffset + k + 1];
+                } else {
+                    x = forward[forwardOffset + k - 1] + 1;
+                    if (k < forwardK + d && forward[forwardOffset + k + 1] >= x) {
+                        x = forward[forwardOffset + k + 1];
+                    }
+                }
+                int y = x - k;
+                while (x < originalEnd && y < modifiedEnd && original[x] == modified[y]) {
+                    x++;
+                    y++;
+                }
+                forward[forwardOffset + k] = x;
+                if (oddDelta && backwardK - d < k && k < backwardK + d
+                        && backward[backwardOffset + k] <= forward[forwardOffset + k]) {
+                    return new int[]{forward[forwardOffset + k], forward[forwardOffset + k] - k};
+                }
+            }
+
+            for (int k = backwardK - d; k <= backwardK + d; k += 2) {
+                int x;
+                if (k == backwardK + d) {
+                    x = backward[backwardOffset + k - 1];
+                } else {
+                    x = backward[backwardOffset + k + 1] - 1;
+                    if (k > backwardK - d && backward[backwardOffset + k - 1] < x) {
+                        x = backward[backwardOffset + k - 1];
+                    }
+                }
+                int y = x - k;
+                while (x > originalStart && y > modifiedStart && original[x - 1] == modified[y - 1]) {
+                    x--;
+                    y--;
+                }
+                backward[backwardOffset + k] = x;
+                if (!oddDelta && forwardK - d <= k && k <= forwardK + d
+                        && backward[backwardOffset + k] <= forward[forwardOffset + k]) {
+                    return new int[]{forward[forwardOffset + k], forward[forwardOffset + k] - k};
+                }
+            }
+        }
+        throw new IllegalStateException("No middle snake found");
+    }
+
+    private List<Edit> edits() {
+        List<Edit> edits = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < original.length || j < modified.length) {
+            if (i < original.length && j < modified.length && !deleted[i] && !inserted[j]) {
+                i++;
+                j++;
+                continue;
+            }
+            int originalStart = i;
+            int modifiedStart = j;
+            while (i < original.length && deleted[i]) {
+                i++;
+            }
+            while (j < modified.length && inserted[j]) {
+                j++;
+            }
+            Operation operation = i == originalStart ? Operation.INSERT
+                    : j == modifiedStart ? Operation.DELETE
+                    : Operation.REPLACE;
+            edits.add(new Edit(operation, originalStart, i, modifiedStart, j));
+        }
+        return edits;
+    }
+}
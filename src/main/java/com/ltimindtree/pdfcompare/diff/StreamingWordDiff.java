@@ -0,0 +1,159 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered word diff of two texts too large for the heap. The texts are read as streams and diffed window by window
+ * with {@link SequenceDiff}: the edits up to the last word pair the window matches are reported, the words after it are
+ * carried over into the next window. Memory is bounded by the window whatever the length of the texts.
+ * <p>
+ * Within a window the edit script is the shortest one. Across windows it is shortest as long as a change is smaller
+ * than the window; a longer change is reported as a replace of the whole window.
+ */
+public final class StreamingWordDiff {
+
+    public static final int DEFAULT_WINDOW = 10_000;
+
+    /**
+     * A word and the page it is on, starting at 1. Pages end with a form feed.
+     */
+    public record Word(int page, String text) {
+    }
+
+    @FunctionalInterface
+    public interface EditListener {
+
+        /**
+         * @param original the words removed, empty for an insert
+         * @param modified the words added, empty for a delete
+         */
+        void edit(SequenceDiff.Operation operation, List<Word> original, List<Word> modified) throws IOException;
+    }
+
+    private StreamingWordDiff() {
+    }
+
+    /**
+     * Reports the edits turning the words of {@code original} into those of {@code modified} in text order.
+     *
+     * @param window the number of words of each text held in memory at most
+     * @return the number of edits
+     */
+    public static int diff(Reader original, Reader modified, int window, EditListener listener) throws IOException {
+        WordReader originalWords = new WordReader(original);
+        WordReader modifiedWords = new WordReader(modified);
+        List<Word> originalWindow = new ArrayList<>();
+        List<Word> modifiedWindow = new ArrayList<>();
+        int editCount = 0;
+        while (true) {
+            boolean originalEnded = originalWords.fill(originalWindow, window);
+            boolean modifiedEnded = modifiedWords.fill(modifiedWindow, window);
+            if (originalWindow.isEmpty() && modifiedWindow.isEmpty()) {
+                return editCount;
+            }
+
+            // symbols only need to be equal within a window
+            Map<String, Integer> symbols = new HashMap<>();
+            List<SequenceDiff.Edit> edits = SequenceDiff.diff(intern(originalWindow, symbols),
+                    intern(modifiedWindow, symbols));
+
+            // the last matching pair is an anchor both texts agree on, words after it may still match words not read
+            int originalCut = originalWindow.size();
+            int modifiedCut = modifiedWindow.size();
+            if (!(originalEnded && modifiedEnded) && !edits.isEmpty()) {
+                SequenceDiff.Edit last = edits.get(edits.size() - 1);
+                if (last.originalEnd() == originalWindow.size() && last.modifiedEnd() == modifiedWindow.size()
+                        && (last.originalStart() > 0 || last.modifiedStart() > 0)) {
+                    originalCut = last.originalStart();
+                    modifiedCut = last.modifiedStart();
+                }
+            }
+
+            for (SequenceDiff.Edit edit : edits) {
+                if (edit.originalEnd() > originalCut || edit.modifiedEnd() > modifiedCut) {
+                    break;
+                }
+                listener.edit(edit.operation(),
+                        List.copyOf(originalWindow.subList(edit.originalStart(), edit.originalEnd())),
+                        List.copyOf(modifiedWindow.subList(edit.modifiedStart(), edit.modifiedEnd())));
+                editCount++;
+            }
+            originalWindow.subList(0, originalCut).clear();
+            modifiedWindow.subList(0, modifiedCut).clear();
+        }
+    }
+
+    private static int[] intern(List<Word> words, Map<String, Integer> symbols) {
+        int[] interned = new int[words.size()];
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = symbols.computeIfAbsent(words.get(i).text(), text -> symbols.size());
+        }
+        return interned;
+    }
+
+    /**
+     * Splits a text into words at whitespace, counting pages at form feeds.
+     */
+    private static final class WordReader {
+
+        private final Reader reader;
+        private final StringBuilder word = new StringBuilder();
+        private int page = 1;
+        private boolean ended;
+
+        WordReader(Reader reader) {
+            this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+        }
+
+        /**
+         * Reads words until the window is full.
+         *
+         * @return whether the text has ended
+         */
+        boolean fill(List<Word> window, int size) throws IOException {
+            while (!ended && window.size() < size) {
+                Word next = next();
+                if (next != null) {
+                    window.add(next);
+                }
+            }
+            return ended;
+        }
+
+        private Word next() throws IOException {
+            while (true) {
+                int c = reader.read();
+                if (c == -1) {
+                    ended = true;
+                    return endWord(page);
+                }
+                if (Character.isWhitespace(c)) {
+                    int wordPage = page;
+                    if (c == '\f') {
+                        page++;
+                    }
+                    if (!word.isEmpty()) {
+                        return endWord(wordPage);
+                    }
+                } else {
+                    word.append((char) c);
+                }
+            }
+        }
+
+        private Word endWord(int wordPage) {
+            if (word.isEmpty()) {
+                return null;
+            }
+            Word next = new Word(wordPage, word.toString());
+            word.setLength(0);
+            return next;
+        }
+    }
+}
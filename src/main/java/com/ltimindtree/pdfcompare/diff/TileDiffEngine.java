@@ -0,0 +1,322 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pixel diff engine working directly on the raster arrays of the compared images.
+ * <p>
+ * The page is split into fixed size tiles. Each tile is first checked for exact equality row by row, which
+ * {@link java.util.Arrays#mismatch} does on the raw {@code int[]} / {@code byte[]} data with intrinsics, and only
+ * tiles that are not exactly equal are diffed pixel by pixel with the color tolerance. The differing tiles are then
+ * merged with their neighbours into a compact list of rectangles.
+ * <p>
+ * The pixel loops over packed RGB rasters run on a {@link PixelKernel}, see {@link PixelKernels#select(boolean)}.
+ * <p>
+ * Large images are split into horizontal bands of whole tile rows which are compared in parallel on a fork/join pool.
+ * Each band fills its own tiles, so the regions are merged across the bands like within one.
+ */
+public class TileDiffEngine {
+
+    private final int tileSize;
+    private final double pixelTolerance;
+    private final int minDifferingPixels;
+    private final PixelKernel kernel;
+    private final ForkJoinPool bandPool;
+    private final long bandMinPixels;
+
+    public TileDiffEngine(int tileSize, double pixelTolerance) {
+        this(tileSize, pixelTolerance, 1, new ScalarPixelKernel());
+    }
+
+    public TileDiffEngine(int tileSize, double pixelTolerance, int minDifferingPixels, PixelKernel kernel) {
+        this(tileSize, pixelTolerance, minDifferingPixels, kernel, null, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param tileSize           edge length of the tiles in pixels
+     * @param pixelTolerance     fraction of the maximum color distance under which two pixels are considered equal,
+     *                           {@code 0.1} matches the default of the romankh3 image-comparison library
+     * @param minDifferingPixels pixels beyond the tolerance a tile needs to count as different, higher values ignore
+     *                           anti-aliasing noise
+     * @param kernel             pixel loops used on packed RGB rasters
+     * @param bandPool           pool the bands of large images are compared on, {@code null} compares every image on
+     *                           the calling thread
+     * @param bandMinPixels      images of at least this many pixels are compared in bands
+     */
+    public TileDiffEngine(int tileSize, double pixelTolerance, int minDifferingPixels, PixelKernel kernel,
+                          ForkJoinPool bandPool, long bandMinPixels) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+        this.tileSize = tileSize;
+        this.pixelTolerance = pixelTolerance;
+        this.minDifferingPixels = Math.max(1, minDifferingPixels);
+        this.kernel = kernel;
+        this.bandPool = bandPool;
+        this.bandMinPixels = bandMinPixels;
+    }
+
+    /**
+     * Compares two images and returns the regions where they differ, in pixels. An empty list means the images match.
+     * Images of different size differ everywhere.
+     */
+    public List<Rectangle> compare(BufferedImage expected, BufferedImage actual) {
+        if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+            return List.of(new Rectangle(0, 0,
+                    Math.max(expected.getWidth(), actual.getWidth()),
+                    Math.max(expected.getHeight(), actual.getHeight())));
+        }
+        RasterRows[] rows = compatibleRows(expected, actual);
+        return diffTiles(rows[0], rows[1]);
+    }
+
+    public boolean isIdentical(BufferedImage image1, BufferedImage image2) {
+        if (image1.getWidth() != image2.getWidth() || image1.getHeight() != image2.getHeight()) {
+            return false;
+        }
+        RasterRows[] rows = compatibleRows(image1, image2);
+        for (int y = 0; y < rows[0].height; y++) {
+            if (!rows[0].rowEquals(rows[1], y, 0, rows[0].width)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the cells of a grid over the image that hold a pixel differing by more than the tolerance. Only the
+     * regions are looked at, as returned by {@link #compare}; images of different size differ in every cell of them.
+     *
+     * @param cellSize edge length of the cells in pixels
+     * @return the cells row by row, {@code ceil(width / cellSize)} per row
+     */
+    public BitSet differenceMask(BufferedImage expected, BufferedImage actual, List<Rectangle> regions, int cellSize) {
+        int width = Math.max(expected.getWidth(), actual.getWidth());
+        int columns = (width + cellSize - 1) / cellSize;
+        BitSet mask = new BitSet();
+        boolean sameSize = expected.getWidth() == actual.getWidth() && expected.getHeight() == actual.getHeight();
+        RasterRows[] rows = sameSize ? compatibleRows(expected, actual) : null;
+        int[] bounds = new int[2];
+
+        for (Rectangle region : regions) {
+            for (int y = region.y; y < region.y + region.height; y++) {
+                int cellRow = y / cellSize;
+                for (int cellX = region.x / cellSize * cellSize; cellX < region.x + region.width; cellX += cellSize) {
+                    int cell = cellRow * columns + cellX / cellSize;
+                    if (mask.get(cell)) {
+                        continue;
+                    }
+                    int from = Math.max(cellX, region.x);
+                    int length = Math.min(cellX + cellSize, region.x + region.width) - from;
+                    if (!sameSize || (!rows[0].rowEquals(rows[1], y, from, length)
+                            && rows[0].rowDifference(rows[1], y, from, length, pixelTolerance, bounds) > 0)) {
+                        mask.set(cell);
+                    }
+                }
+            }
+        }
+        return mask;
+    }
+
+    private List<Rectangle> diffTiles(RasterRows expected, RasterRows actual) {
+        int tilesX = (expected.width + tileSize - 1) / tileSize;
+        int tilesY = (expected.height + tileSize - 1) / tileSize;
+        Rectangle[] boxes = new Rectangle[tilesX * tilesY];
+
+        if (Objects.nonNull(bandPool) && tilesY > 1 && (long) expected.width * expected.height >= bandMinPixels) {
+            // a few bands per thread, so threads finishing early take over bands of the others
+            int bandTileRows = Math.max(1, tilesY / (4 * bandPool.getParallelism()));
+            bandPool.invoke(new Band(expected, actual, boxes, tilesX, 0, tilesY, bandTileRows));
+        } else {
+            diffTileRows(expected, actual, boxes, tilesX, 0, tilesY);
+        }
+        return mergeNeighbours(boxes, tilesX, tilesY);
+    }
+
+    /**
+     * Diffs the tiles of the rows {@code [fromTileRow, toTileRow)} and stores their boxes, other rows are not touched.
+     */
+    private void diffTileRows(RasterRows expected, RasterRows actual, Rectangle[] boxes, int tilesX,
+                              int fromTileRow, int toTileRow) {
+        int[] bounds = new int[2];
+        for (int tileRow = fromTileRow; tileRow < toTileRow; tileRow++) {
+            int y = tileRow * tileSize;
+            int height = Math.min(tileSize, expected.height - y);
+            for (int x = 0; x < expected.width; x += tileSize) {
+                int width = Math.min(tileSize, expected.width - x);
+                if (!tileEquals(expected, actual, x, y, width, height)) {
+                    boxes[tileRow * tilesX + x / tileSize] = differenceBox(expected, actual, x, y, width, height, pixelTolerance, bounds);
+                }
+            }
+        }
+    }
+
+    private static boolean tileEquals(RasterRows expected, RasterRows actual, int x, int y, int width, int height) {
+        for (int row = y; row < y + height; row++) {
+            if (!expected.rowEquals(actual, row, x, width)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bounding box of the pixels of a tile which differ by more than the tolerance, {@code null} if there are fewer
+     * than {@code minDifferingPixels} of them.
+     */
+    private Rectangle differenceBox(RasterRows expected, RasterRows actual, int x, int y, int width, int height,
+                                    double tolerance, int[] bounds) {
+        int differingPixels = 0;
+        int minX = Integer.MAX_VALUE;
+        int maxX = -1;
+        int minY = -1;
+        int maxY = -1;
+        for (int row = y; row < y + height; row++) {
+            if (expected.rowEquals(actual, row, x, width)) {
+                continue;
+            }
+            int count = expected.rowDifference(actual, row, x, width, tolerance, bounds);
+            if (count > 0) {
+                differingPixels += count;
+                minX = Math.min(minX, bounds[0]);
+                maxX = Math.max(maxX, bounds[1]);
+                if (minY < 0) {
+                    minY = row;
+                }
+                maxY = row;
+            }
+        }
+        if (differingPixels < minDifferingPixels) {
+            return null;
+        }
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    /**
+     * Merges the boxes of touching tiles (including diagonal neighbours) into one rectangle per connected group.
+     */
+    private static List<Rectangle> mergeNeighbours(Rectangle[] boxes, int tilesX, int tilesY) {
+        int[] parent = new int[boxes.length];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                int i = ty * tilesX + tx;
+                if (boxes[i] == null) {
+                    continue;
+                }
+                // right, below-left, below and below-right neighbours, the others were visited already
+                if (tx + 1 < tilesX && boxes[i + 1] != null) {
+                    union(parent, i, i + 1);
+                }
+                if (ty + 1 < tilesY) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int nx = tx + dx;
+                        if (nx >= 0 && nx < tilesX && boxes[i + tilesX + dx] != null) {
+                            union(parent, i, i + tilesX + dx);
+                        }
+                    }
+                }
+            }
+        }
+
+        Rectangle[] merged = new Rectangle[boxes.length];
+        List<Rectangle> regions = new ArrayList<>();
+        for (int i = 0; i < boxes.length; i++) {
+            if (boxes[i] == null) {
+                continue;
+            }
+            int root = find(parent, i);
+            if (merged[root] == null) {
+                merged[root] = new Rectangle(boxes[i]);
+                regions.add(merged[root]);
+            } else {
+                merged[root].add(boxes[i]);
+            }
+        }
+        return regions;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private void forEachTile(RasterRows rows, TileVisitor visitor) {
+        for (int y = 0; y < rows.height; y += tileSize) {
+            for (int x = 0; x < rows.width; x += tileSize) {
+                visitor.visit(x, y, Math.min(tileSize, rows.width - x), Math.min(tileSize, rows.height - y));
+            }
+        }
+    }
+
+    private RasterRows[] compatibleRows(BufferedImage image1, BufferedImage image2) {
+        RasterRows rows1 = RasterRows.of(image1, kernel);
+        RasterRows rows2 = RasterRows.of(image2, kernel);
+        if (!rows1.isCompatible(rows2)) {
+            rows1 = RasterRows.of(RasterRows.toIntRgb(image1), kernel);
+            rows2 = RasterRows.of(RasterRows.toIntRgb(image2), kernel);
+        }
+        return new RasterRows[]{rows1, rows2};
+    }
+
+    /**
+     * Rows of tiles halved until they are at most {@code bandTileRows} high.
+     */
+    private final class Band extends RecursiveAction {
+
+        private final RasterRows expected;
+        private final RasterRows actual;
+        private final Rectangle[] boxes;
+        private final int tilesX;
+        private final int fromTileRow;
+        private final int toTileRow;
+        private final int bandTileRows;
+
+        Band(RasterRows expected, RasterRows actual, Rectangle[] boxes, int tilesX, int fromTileRow, int toTileRow,
+             int bandTileRows) {
+            this.expected = expected;
+            this.actual = actual;
+            this.boxes = boxes;
+            this.tilesX = tilesX;
+            this.fromTileRow = fromTileRow;
+            this.toTileRow = toTileRow;
+            this.bandTileRows = bandTileRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (toTileRow - fromTileRow <= bandTileRows) {
+                diffTileRows(expected, actual, boxes, tilesX, fromTileRow, toTileRow);
+                return;
+            }
+            int middle = (fromTileRow + toTileRow) >>> 1;
+            invokeAll(new Band(expected, actual, boxes, tilesX, fromTileRow, middle, bandTileRows),
+                    new Band(expected, actual, boxes, tilesX, middle, toTileRow, bandTileRows));
+        }
+    }
+
+    @FunctionalInterface
+    private interface TileVisitor {
+        void visit(int x, int y, int width, int height);
+    }
+}
@@ -0,0 +1,69 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PixelKernel} on the incubating JDK Vector API. It is only loaded when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, see {@link PixelKernels}.
+ */
+public class VectorPixelKernel implements PixelKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private final ScalarPixelKernel tail = new ScalarPixelKernel();
+
+    @Override
+    public int countMismatches(int[] a, int aFrom, int[] b, int bFrom, int length, int mask) {
+        int count = 0;
+        int i = 0;
+        for (int upperBound = SPECIES.loopBound(length); i < upperBound; i += SPECIES.length()) {
+            IntVector va = IntVector.fromArray(SPECIES, a, aFrom + i);
+            IntVector vb = IntVector.fromArray(SPECIES, b, bFrom + i);
+            count += va.lanewise(VectorOperators.XOR, vb).and(mask).compare(VectorOperators.NE, 0).trueCount();
+        }
+        return count + tail.countMismatches(a, aFrom + i, b, bFrom + i, length - i, mask);
+    }
+
+    @Override
+    public int countDifferences(int[] a, int aFrom, int[] b, int bFrom, int length, int squaredThreshold, int[] bounds) {
+        int count = 0;
+        int first = -1;
+        int last = -1;
+        int i = 0;
+        for (int upperBound = SPECIES.loopBound(length); i < upperBound; i += SPECIES.length()) {
+            IntVector va = IntVector.fromArray(SPECIES, a, aFrom + i);
+            IntVector vb = IntVector.fromArray(SPECIES, b, bFrom + i);
+            IntVector red = channel(va, 16).sub(channel(vb, 16));
+            IntVector green = channel(va, 8).sub(channel(vb, 8));
+            IntVector blue = channel(va, 0).sub(channel(vb, 0));
+            IntVector distance = red.mul(red).add(green.mul(green)).add(blue.mul(blue));
+            VectorMask<Integer> different = distance.compare(VectorOperators.GT, squaredThreshold);
+            if (different.anyTrue()) {
+                if (first < 0) {
+                    first = i + different.firstTrue();
+                }
+                last = i + different.lastTrue();
+                count += different.trueCount();
+            }
+        }
+
+        int tailCount = tail.countDifferences(a, aFrom + i, b, bFrom + i, length - i, squaredThreshold, bounds);
+        if (tailCount > 0) {
+            if (first < 0) {
+                first = i + bounds[0];
+            }
+            last = i + bounds[1];
+            count += tailCount;
+        }
+        bounds[0] = first;
+        bounds[1] = last;
+        return count;
+    }
+
+    private static IntVector channel(IntVector pixels, int shift) {
+        return pixels.lanewise(VectorOperators.LSHR, shift).and(0xFF);
+    }
+}
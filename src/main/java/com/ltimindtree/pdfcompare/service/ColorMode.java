@@ -0,0 +1,44 @@
+package com.ltimindtree.pdfcompare.service;
+
+import org.apache.pdfbox.rendering.ImageType;
+
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+
+/**
+ * Color model pages are rendered in for comparison. A 300 DPI A4 page takes about 35 MB as {@link #RGB}, a quarter of
+ * that as {@link #GRAY} and a thirty-second as {@link #BINARY}.
+ */
+public enum ColorMode {
+
+    RGB(ImageType.RGB, BufferedImage.TYPE_INT_RGB),
+    GRAY(ImageType.GRAY, BufferedImage.TYPE_BYTE_GRAY),
+    BINARY(ImageType.BINARY, BufferedImage.TYPE_BYTE_BINARY);
+
+    private final ImageType imageType;
+    private final int bufferedImageType;
+
+    ColorMode(ImageType imageType, int bufferedImageType) {
+        this.imageType = imageType;
+        this.bufferedImageType = bufferedImageType;
+    }
+
+    public ImageType getImageType() {
+        return imageType;
+    }
+
+    public int getBufferedImageType() {
+        return bufferedImageType;
+    }
+
+    /**
+     * Parses a request parameter such as {@code gray}, ignoring case.
+     */
+    public static ColorMode of(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported color mode " + value + ", expected rgb, gray or binary");
+        }
+    }
+}
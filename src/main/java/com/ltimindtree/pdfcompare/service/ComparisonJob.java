@@ -0,0 +1,169 @@
+package com.ltimindtree.pdfcompare.service;
+
+import com.ltimindtree.pdfcompare.web.dto.MyResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A comparison running in the background, see {@link ComparisonJobService}. The page counters add up over all pairs of
+ * the job; the total grows as each pair starts, since page counts are only known once the documents are opened.
+ */
+public class ComparisonJob implements ComparisonProgressListener {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final int pairCount;
+    private final AtomicInteger pairsCompleted = new AtomicInteger();
+    private final AtomicInteger pagesTotal = new AtomicInteger();
+    private final AtomicInteger pagesRendered = new AtomicInteger();
+    private final AtomicInteger pagesCompared = new AtomicInteger();
+    private final AtomicInteger pagesWritten = new AtomicInteger();
+    private final CompletableFuture<List<MyResponse>> completion = new CompletableFuture<>();
+    private final List<Consumer<ComparisonJob>> watchers = new CopyOnWriteArrayList<>();
+
+    private volatile State state = State.QUEUED;
+    private volatile String error;
+    private volatile long finishedAt;
+
+    public ComparisonJob(String id, int pairCount) {
+        this.id = id;
+        this.pairCount = pairCount;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    public int getPairsCompleted() {
+        return pairsCompleted.get();
+    }
+
+    public int getPagesTotal() {
+        return pagesTotal.get();
+    }
+
+    public int getPagesRendered() {
+        return pagesRendered.get();
+    }
+
+    public int getPagesCompared() {
+        return pagesCompared.get();
+    }
+
+    public int getPagesWritten() {
+        return pagesWritten.get();
+    }
+
+    /**
+     * @return the responses, {@code null} until the job completed
+     */
+    public List<MyResponse> getResults() {
+        return state == State.COMPLETED ? completion.join() : null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Completes with the responses of all pairs, or exceptionally with the failure of the job.
+     */
+    public CompletableFuture<List<MyResponse>> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Calls the watcher on every change of the job, from the thread running it, until it is removed with
+     * {@link #unwatch}. The comparison waits for the watcher, which hands slow work such as I/O to a thread of its own.
+     */
+    public void watch(Consumer<ComparisonJob> watcher) {
+        watchers.add(watcher);
+    }
+
+    public void unwatch(Consumer<ComparisonJob> watcher) {
+        watchers.remove(watcher);
+    }
+
+    public void started() {
+        state = State.RUNNING;
+        changed();
+    }
+
+    public void pairCompleted() {
+        pairsCompleted.incrementAndGet();
+        changed();
+    }
+
+    public void completed(List<MyResponse> results) {
+        finishedAt = System.currentTimeMillis();
+        state = State.COMPLETED;
+        completion.complete(results);
+        changed();
+    }
+
+    public void failed(Throwable throwable) {
+        finishedAt = System.currentTimeMillis();
+        error = throwable.getMessage();
+        state = State.FAILED;
+        completion.completeExceptionally(throwable);
+        changed();
+    }
+
+    @Override
+    public void pagesToCompare(int pageCount) {
+        pagesTotal.addAndGet(pageCount);
+        changed();
+    }
+
+    @Override
+    public void pageRendered(int pageIndex) {
+        pagesRendered.incrementAndGet();
+        changed();
+    }
+
+    @Override
+    public void pageCompared(int pageIndex, boolean different) {
+        pagesCompared.incrementAndGet();
+        changed();
+    }
+
+    @Override
+    public void pageWritten(int pageIndex) {
+        pagesWritten.incrementAndGet();
+        changed();
+    }
+
+    private void changed() {
+        for (Consumer<ComparisonJob> watcher : watchers) {
+            try {
+                watcher.accept(this);
+            } catch (RuntimeException e) {
+                // a broken watcher must not fail the comparison
+                watchers.remove(watcher);
+            }
+        }
+    }
+}
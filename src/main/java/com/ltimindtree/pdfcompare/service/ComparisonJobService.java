@@ -0,0 +1,20 @@
+package com.ltimindtree.pdfcompare.service;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ComparisonJobService {
+
+    /**
+     * Queues the comparison of the pairs on the job pool and returns at once. The pairs are compared concurrently and
+     * the responses come in the order of the pairs; a pair that fails gets a response with its error.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException when the job queue is full
+     */
+    ComparisonJob submit(List<ComparisonPair> pairs, String comparisonType, ColorMode colorMode, DiffFormat diffFormat);
+
+    /**
+     * @return the job, unless it is unknown or finished longer than {@code pdf-compare.jobs.retention} ago
+     */
+    Optional<ComparisonJob> find(String jobId);
+}
@@ -0,0 +1,24 @@
+package com.ltimindtree.pdfcompare.service;
+
+import java.io.File;
+
+/**
+ * An uploaded original and modified document to compare.
+ *
+ * @param modifiedFile {@code null} when no modified document matches the original, the pair then fails
+ * @param displayName  name of the original document shown to the user
+ * @param error        why the documents could not be uploaded, the pair then fails with it; {@code null} otherwise
+ */
+public record ComparisonPair(File originalFile, File modifiedFile, String displayName, String error) {
+
+    public ComparisonPair(File originalFile, File modifiedFile, String displayName) {
+        this(originalFile, modifiedFile, displayName, null);
+    }
+
+    /**
+     * A pair whose documents could not be uploaded.
+     */
+    public static ComparisonPair failed(String displayName, String error) {
+        return new ComparisonPair(null, null, displayName, error);
+    }
+}
@@ -0,0 +1,29 @@
+package com.ltimindtree.pdfcompare.service;
+
+/**
+ * Page by page progress of a comparison. Called from the thread running the comparison, implementations must be
+ * thread-safe when they are shared by comparisons running in parallel.
+ */
+public interface ComparisonProgressListener {
+
+    ComparisonProgressListener NONE = new ComparisonProgressListener() {
+    };
+
+    /**
+     * Number of pages the comparison of one document pair goes through.
+     */
+    default void pagesToCompare(int pageCount) {
+    }
+
+    default void pageRendered(int pageIndex) {
+    }
+
+    /**
+     * Also called for pages found identical without being rendered.
+     */
+    default void pageCompared(int pageIndex, boolean different) {
+    }
+
+    default void pageWritten(int pageIndex) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.ltimindtree.pdfcompare.service;
+
+import com.ltimindtree.pdfcompare.web.dto.MyResponse;
+
+/**
+ * Results of whole comparisons, keyed by the content of both documents and the comparison options. The cache owns the
+ * diff PDFs of its results and deletes them once the result expired or was evicted and every call it returned the result
+ * to released it.
+ */
+public interface ComparisonResultCache {
+
+    /**
+     * Returns the cached result for the key, or runs the comparison. Concurrent calls with the same key wait for the
+     * one comparison already running instead of starting their own.
+     * <p>
+     * The page progress of the comparison is kept with its result. A call answered from the cache, or by a comparison
+     * another call started, reports that progress to its listener once it has the result.
+     * <p>
+     * The diff PDF of the result is held for the caller and stays on disk, even when the result expires or is evicted,
+     * until the caller {@link #release releases} it.
+     */
+    MyResponse getOrCompute(Key key, ComparisonProgressListener listener, Comparison comparison) throws Exception;
+
+    /**
+     * Releases a diff PDF returned by {@link #getOrCompute}, which is deleted once it is neither cached nor held.
+     *
+     * @param url path of the diff PDF, {@code null} for results without one
+     */
+    void release(String url);
+
+    @FunctionalInterface
+    interface Comparison {
+
+        /**
+         * @param listener to report the progress of the comparison to
+         */
+        MyResponse compare(ComparisonProgressListener listener) throws Exception;
+    }
+
+    /**
+     * @param originalHash SHA-256 of the original document, see {@link com.ltimindtree.pdfcompare.util.ContentHash}
+     * @param modifiedHash SHA-256 of the modified document
+     * @param colorMode    {@code null} for comparison types the color mode does not apply to
+     * @param diffFormat   {@code null} for comparison types the diff format does not apply to
+     */
+    record Key(String originalHash, String modifiedHash, String comparisonType, ColorMode colorMode,
+               DiffFormat diffFormat) {
+    }
+}
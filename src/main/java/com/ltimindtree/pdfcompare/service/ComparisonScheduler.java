@@ -0,0 +1,48 @@
+package com.ltimindtree.pdfcompare.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * The pool comparison work runs on, one for the whole application. Every call to {@link #invokeAll} is a request of
+ * its own and the workers take the tasks of the requests in turn, so a large document does not hold back a small one
+ * submitted after it.
+ * <p>
+ * Tasks must not call {@link #invokeAll} themselves, the workers could all end up waiting for one another.
+ */
+public interface ComparisonScheduler {
+
+    /**
+     * Runs the tasks and hands their results to the consumer on the calling thread, in the order of the tasks, each as
+     * soon as it and the ones before it are done. Only a few tasks of a request are ahead of the consumer, waiting for a
+     * worker, running or done, so the caller blocks until the consumer catches up and results such as rendered pages do
+     * not pile up.
+     * <p>
+     * The first task or consumer call to fail drops the tasks not started yet and the results not consumed yet; its
+     * exception is rethrown once the running tasks are done, {@link IOException}s and unchecked exceptions as they are,
+     * other exceptions wrapped in a {@link java.util.concurrent.CompletionException}.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException when too many requests are running already
+     */
+    <T> void invokeAll(List<? extends Callable<T>> tasks, ResultConsumer<? super T> consumer)
+            throws IOException, InterruptedException;
+
+    /**
+     * Runs the tasks like {@link #invokeAll(List, ResultConsumer)} and waits for all of them.
+     *
+     * @return the results in the order of the tasks
+     */
+    default <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws IOException, InterruptedException {
+        List<T> results = new ArrayList<>(Collections.nCopies(tasks.size(), null));
+        invokeAll(tasks, results::set);
+        return results;
+    }
+
+    @FunctionalInterface
+    interface ResultConsumer<T> {
+        void accept(int index, T result) throws IOException;
+    }
+}
@@ -0,0 +1,28 @@
+package com.ltimindtree.pdfcompare.service;
+
+import com.ltimindtree.pdfcompare.web.dto.MyResponse;
+
+import java.io.File;
+
+public interface ComparisonService {
+
+    /**
+     * Compares an uploaded original and modified document and writes the diff PDF when they differ.
+     *
+     * @param displayName    name of the original document shown to the user
+     * @param comparisonType {@code image}, {@code font}, {@code text} or {@code textdiff}, which answers with the changed
+     *                       lines instead of a diff PDF
+     * @param colorMode      color mode of the {@code image} comparison
+     * @param diffFormat     format of the result of the {@code image} comparison, a diff PDF or the differing pages
+     * @param listener       notified of the progress, replayed when the result comes from the cache
+     * @return the response, whose diff PDF stays on disk until it is {@link #release released}
+     */
+    MyResponse compare(File originalFile, File modifiedFile, String displayName, String comparisonType, ColorMode colorMode,
+                       DiffFormat diffFormat, ComparisonProgressListener listener) throws Exception;
+
+    /**
+     * Lets the diff PDF of a response be deleted once no other response and no cached result refer to it.
+     */
+    default void release(MyResponse response) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.ltimindtree.pdfcompare.service;
+
+import java.util.Locale;
+
+/**
+ * How the differing pages of an {@code image} comparison are reported.
+ */
+public enum DiffFormat {
+
+    /**
+     * Both pages as lossless rasters at the comparison resolution, with the differences highlighted on top.
+     */
+    RASTER,
+
+    /**
+     * Both pages imported as form XObjects, with the differences as vector rectangles on top. The diff PDF keeps the
+     * text and vector content of the inputs and is about as large as they are.
+     */
+    VECTOR,
+
+    /**
+     * No diff PDF. The response lists the differing regions of each page with a mask and thumbnails, for clients that
+     * draw the differences themselves, see {@link com.ltimindtree.pdfcompare.web.dto.PageDiff}.
+     */
+    MANIFEST;
+
+    /**
+     * Parses a request parameter such as {@code vector}, ignoring case.
+     */
+    public static DiffFormat of(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported diff format " + value + ", expected raster, vector or manifest");
+        }
+    }
+}
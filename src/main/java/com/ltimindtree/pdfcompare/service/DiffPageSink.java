@@ -0,0 +1,26 @@
+package com.ltimindtree.pdfcompare.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Takes the differing pages of a comparison as they are found and writes them to the diff PDF, so a comparison holds
+ * only the pages not written yet instead of every differing page.
+ */
+@FunctionalInterface
+public interface DiffPageSink {
+
+    /**
+     * Adds a page with the original image on the left and the modified one on the right, in page order. The images must
+     * not change afterwards, they may still be written after the call returns.
+     */
+    void addPage(int pageIndex, BufferedImage originalImage, BufferedImage modifiedImage) throws IOException;
+
+    /**
+     * Compares documents and hands their differing pages to a sink.
+     */
+    @FunctionalInterface
+    interface Source {
+        void writeTo(DiffPageSink sink) throws IOException, InterruptedException;
+    }
+}
@@ -4,7 +4,18 @@ import org.apache.pdfbox.text.TextPosition;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 public interface DrawPrintTextLocationsService {
+
+    /**
+     * Writes an image of every page of the file with the given text positions highlighted, {@code <name>-marked-<page>.png}
+     * next to the file. The positions are looked for on every page.
+     */
     void highlightDifference(String filename, List<TextPosition> diffTextPositions) throws IOException;
+
+    /**
+     * Like {@link #highlightDifference(String, List)} with the positions to highlight by 1-based page number.
+     */
+    void highlightDifference(String filename, Map<Integer, List<TextPosition>> diffTextPositionsByPage) throws IOException;
 }
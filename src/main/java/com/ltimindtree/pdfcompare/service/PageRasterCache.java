@@ -0,0 +1,25 @@
+package com.ltimindtree.pdfcompare.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Rendered pages, keyed by the content of the document they come from. Baseline documents compared again and again
+ * are rendered once.
+ * <p>
+ * Cached images are shared between comparisons and must not be modified, copy them before drawing on them.
+ */
+public interface PageRasterCache {
+
+    /**
+     * @return the cached page, or {@code null} when it has not been rendered yet
+     */
+    BufferedImage get(Key key);
+
+    void put(Key key, BufferedImage image);
+
+    /**
+     * @param fileHash SHA-256 of the document, see {@link com.ltimindtree.pdfcompare.util.ContentHash}
+     */
+    record Key(String fileHash, int pageIndex, float dpi, ColorMode colorMode) {
+    }
+}
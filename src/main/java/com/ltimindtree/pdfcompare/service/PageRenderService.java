@@ -0,0 +1,31 @@
+package com.ltimindtree.pdfcompare.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.File;
+import java.io.IOException;
+
+public interface PageRenderService {
+
+    /**
+     * Opens a render session on the given PDF file. The session must be closed by the caller.
+     */
+    default PageRenderSession open(File file) throws IOException {
+        return open(file, null);
+    }
+
+    /**
+     * Opens a render session on a PDF file whose content hash the caller has already computed, so the page cache does
+     * not read the whole file again to hash it.
+     *
+     * @param fileHash SHA-256 of the file, see {@link com.ltimindtree.pdfcompare.util.ContentHash}, {@code null} to
+     *                 hash the file when the page cache needs it
+     */
+    PageRenderSession open(File file, String fileHash) throws IOException;
+
+    /**
+     * Loads a PDF file the same way the render sessions do, for reading it on the calling thread. The document must be
+     * closed by the caller.
+     */
+    PDDocument load(File file) throws IOException;
+}
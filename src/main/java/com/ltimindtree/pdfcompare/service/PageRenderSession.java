@@ -0,0 +1,68 @@
+package com.ltimindtree.pdfcompare.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Renders the pages of one PDF file on the shared render pool. PDFBox objects are not thread-safe, so every running
+ * task gets a {@link PDDocument} and {@link PDFRenderer} of its own for the duration of the task.
+ */
+public interface PageRenderSession extends Closeable {
+
+    int getNumberOfPages();
+
+    /**
+     * Renders a single page asynchronously. The image may come from the {@link PageRasterCache} and be shared with
+     * other comparisons, so it must not be modified.
+     */
+    default CompletableFuture<BufferedImage> render(int pageIndex, float dpi) {
+        return render(pageIndex, dpi, ColorMode.RGB);
+    }
+
+    CompletableFuture<BufferedImage> render(int pageIndex, float dpi, ColorMode colorMode);
+
+    /**
+     * Renders only the given regions of a page, in pixels at the given resolution. Each region is clipped while
+     * rendering, so the cost is proportional to the region size rather than the page size.
+     */
+    CompletableFuture<List<BufferedImage>> renderRegions(int pageIndex, float dpi, ColorMode colorMode, List<Rectangle> regions);
+
+    /**
+     * Runs a task against a document handle owned by the task while it runs.
+     */
+    <T> CompletableFuture<T> submit(DocumentTask<T> task);
+
+    /**
+     * Loads another document of the file, owned by the caller until it closes it. For work that needs the same
+     * document across calls, which the pooled handles of {@link #submit} do not guarantee.
+     */
+    PDDocument load() throws IOException;
+
+    /**
+     * Renders pages {@code 0..pageCount-1} in parallel and returns them in page order. At most
+     * {@code pdf-compare.render.pages-in-flight} pages are rendered ahead of the consumer.
+     */
+    default Iterator<BufferedImage> pages(float dpi, int pageCount) {
+        return pages(dpi, ColorMode.RGB, pageCount);
+    }
+
+    Iterator<BufferedImage> pages(float dpi, ColorMode colorMode, int pageCount);
+
+    /**
+     * Renders the given pages in parallel and returns them in the order given.
+     */
+    Iterator<BufferedImage> pages(float dpi, ColorMode colorMode, List<Integer> pageIndices);
+
+    @FunctionalInterface
+    interface DocumentTask<T> {
+        T apply(PDDocument document, PDFRenderer renderer) throws IOException;
+    }
+}
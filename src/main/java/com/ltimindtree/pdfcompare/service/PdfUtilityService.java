@@ -1,16 +1,43 @@
 package com.ltimindtree.pdfcompare.service;
 
-import java.awt.image.BufferedImage;
+import com.ltimindtree.pdfcompare.web.dto.PageDiff;
+
 import java.io.File;
-import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 
 public interface PdfUtilityService {
 
-    Map<Integer, BufferedImage> convertPDFToImage(File file) throws IOException, InterruptedException;
+    /**
+     * Compares the page pairs of the two documents on the comparison scheduler and writes the differing pages to a diff
+     * PDF in page order as they are found, so only the page pairs ahead of the writer are held as rasters.
+     *
+     * @param originalHash SHA-256 of the original file when it is known already, for the page cache, or {@code null}
+     * @param modifiedHash SHA-256 of the modified file when it is known already, or {@code null}
+     * @param colorMode  color mode the pages are compared in, differing pages are written to the diff PDF in color
+     * @param diffFormat how the differing pages are written to the diff PDF
+     * @param listener   notified as pages are rendered, compared and written
+     * @return path of the diff PDF, or {@code null} when the documents are identical
+     */
+    String compareAndCreateDiffPdf(File originalFile, File modifiedFile, String originalHash, String modifiedHash,
+                                   String filename, ColorMode colorMode, DiffFormat diffFormat,
+                                   ComparisonProgressListener listener) throws Exception;
 
-    Map<Integer, List<BufferedImage>> comparePDFs(Map<Integer, BufferedImage> originalBufferedImagesMap, Map<Integer, BufferedImage> modifiedBufferedImagesMap) throws IOException, InterruptedException;
+    /**
+     * Compares the two documents like {@link #compareAndCreateDiffPdf} but describes the differing pages instead of
+     * writing a diff PDF, for the {@code manifest} format.
+     *
+     * @return the differing pages in page order, empty when the documents are identical
+     */
+    List<PageDiff> compareAndDescribe(File originalFile, File modifiedFile, String originalHash, String modifiedHash,
+                                      ColorMode colorMode, ComparisonProgressListener listener) throws Exception;
 
-    String createDiffPdf(Map<Integer, BufferedImage> originalBufferedImagesMap, Map<Integer, List<BufferedImage>> diffImagesMap, String filename);
+    /**
+     * Writes a diff PDF with the pages the source hands to its sink. Each page is queued for encoding as it is added, so
+     * only the pages being encoded are held as rasters.
+     *
+     * @param listener notified as pages are written
+     * @return path of the diff PDF, or {@code null} when the source added no page
+     */
+    String createDiffPdf(String filename, ComparisonProgressListener listener, DiffPageSink.Source source)
+            throws Exception;
 }
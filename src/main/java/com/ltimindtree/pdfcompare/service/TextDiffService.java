@@ -0,0 +1,18 @@
+package com.ltimindtree.pdfcompare.service;
+
+import com.ltimindtree.pdfcompare.web.dto.TextChange;
+
+import java.io.File;
+import java.util.List;
+
+public interface TextDiffService {
+
+    /**
+     * Diffs the extracted text of two documents line by line, and the words of replaced lines word by word, without
+     * rendering them. Lines are matched across pages, so text flowing onto another page is not reported as changed.
+     *
+     * @param listener notified of every page of the longer document once the diff is done
+     * @return the changed lines in document order, empty when the text is the same
+     */
+    List<TextChange> compare(File originalFile, File modifiedFile, ComparisonProgressListener listener) throws Exception;
+}
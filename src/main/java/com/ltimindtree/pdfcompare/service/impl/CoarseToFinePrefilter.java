@@ -0,0 +1,47 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.diff.TileDiffEngine;
+import com.ltimindtree.pdfcompare.service.ColorMode;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * First pass of the cascaded image comparison. Pages are compared at a low resolution, and a page is skipped only when
+ * both renders are identical in every pixel; any other page is compared in full at full resolution, so the result is
+ * the one of the full resolution comparison.
+ * <p>
+ * A change leaves the anti-aliased coverage of the low resolution pixels it falls into different, and the comparison is
+ * exact, without the pixel tolerance of the full resolution pass, so even a hairline or a small glyph sends its page to
+ * the full resolution.
+ */
+class CoarseToFinePrefilter {
+
+    private final PdfCompareProperties.Prefilter prefilter;
+    private final TileDiffEngine tileDiffEngine;
+
+    CoarseToFinePrefilter(PdfCompareProperties.Prefilter prefilter, TileDiffEngine tileDiffEngine) {
+        this.prefilter = prefilter;
+        this.tileDiffEngine = tileDiffEngine;
+    }
+
+    float getDpi() {
+        return prefilter.getDpi();
+    }
+
+    /**
+     * Color mode of the low resolution pass. Thin strokes can vanish when thresholded to black and white at low
+     * resolution, so {@link ColorMode#BINARY} comparisons are prefiltered in gray.
+     */
+    static ColorMode coarseMode(ColorMode colorMode) {
+        return colorMode == ColorMode.BINARY ? ColorMode.GRAY : colorMode;
+    }
+
+    /**
+     * @return {@code false} only when the low resolution renders, in {@link #coarseMode}, are identical, the page is
+     * then not compared at full resolution
+     */
+    boolean mayDiffer(BufferedImage coarseOriginal, BufferedImage coarseModified) {
+        return !tileDiffEngine.isIdentical(coarseOriginal, coarseModified);
+    }
+}
@@ -0,0 +1,145 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.*;
+import com.ltimindtree.pdfcompare.web.dto.MyResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs comparison jobs on a bounded pool of workers, so request threads only upload and return. Jobs beyond the pool
+ * wait in a bounded queue; when that is full, submitting fails instead of piling up work. A job holds the diff PDFs of
+ * its results until it expires, however long the result cache keeps them.
+ */
+@Slf4j
+@Service
+public class ComparisonJobServiceImpl implements ComparisonJobService {
+
+    private static final long EXPIRY_INTERVAL_MILLIS = 60_000;
+
+    private final ComparisonService comparisonService;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ThreadPoolExecutor pairExecutor;
+    private final ScheduledExecutorService expiryExecutor;
+    private final long retentionMillis;
+    private final Map<String, ComparisonJob> jobs = new ConcurrentHashMap<>();
+
+    public ComparisonJobServiceImpl(ComparisonService comparisonService, PdfCompareProperties properties) {
+        this.comparisonService = comparisonService;
+        PdfCompareProperties.Jobs jobProperties = properties.getJobs();
+        int poolSize = Math.max(1, jobProperties.getPoolSize());
+        this.jobExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, jobProperties.getQueueCapacity())),
+                new CustomizableThreadFactory("pdf-compare-job-"));
+        int pairPoolSize = Math.max(1, jobProperties.getPairPoolSize());
+        // a job whose pairs do not fit the queue compares them on its own thread, which holds back its next pairs
+        this.pairExecutor = new ThreadPoolExecutor(pairPoolSize, pairPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, jobProperties.getPairQueueCapacity())),
+                new CustomizableThreadFactory("pdf-compare-pair-"), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.retentionMillis = jobProperties.getRetention().toMillis();
+        // finished jobs expire even when no further job is submitted
+        this.expiryExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("pdf-compare-job-expiry-"));
+        long expiryIntervalMillis = Math.max(1_000, Math.min(retentionMillis, EXPIRY_INTERVAL_MILLIS));
+        expiryExecutor.scheduleWithFixedDelay(this::removeExpiredJobs, expiryIntervalMillis, expiryIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        log.info("Comparison job pool started with {} workers, {} pairs compared at a time", poolSize, pairPoolSize);
+    }
+
+    @Override
+    public ComparisonJob submit(List<ComparisonPair> pairs, String comparisonType, ColorMode colorMode,
+                                DiffFormat diffFormat) {
+        removeExpiredJobs();
+        ComparisonJob job = new ComparisonJob(UUID.randomUUID().toString(), pairs.size());
+        jobs.put(job.getId(), job);
+        try {
+            jobExecutor.execute(() -> run(job, pairs, comparisonType, colorMode, diffFormat));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        log.info("Queued comparison job {} of {} pairs", job.getId(), pairs.size());
+        return job;
+    }
+
+    private void run(ComparisonJob job, List<ComparisonPair> pairs, String comparisonType, ColorMode colorMode,
+                     DiffFormat diffFormat) {
+        job.started();
+        List<CompletableFuture<MyResponse>> futures = new ArrayList<>();
+        try {
+            pairs.stream()
+                    .map(pair -> CompletableFuture.supplyAsync(
+                            () -> comparePair(job, pair, comparisonType, colorMode, diffFormat), pairExecutor))
+                    .forEach(futures::add);
+            // in the order of submission, whichever pair finishes first
+            List<MyResponse> responses = futures.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+            job.completed(responses);
+            log.info("Comparison job {} completed", job.getId());
+        } catch (Exception | Error e) {
+            log.error("Comparison job {} failed", job.getId(), e);
+            job.failed(e);
+            // a failed job has no results to download, the pairs compared so far are not held any longer
+            futures.stream()
+                    .filter(future -> future.isDone() && !future.isCompletedExceptionally())
+                    .map(CompletableFuture::join)
+                    .forEach(comparisonService::release);
+        }
+    }
+
+    /**
+     * Compares one pair, turning its failure into an error response so the other pairs of the job still complete.
+     */
+    private MyResponse comparePair(ComparisonJob job, ComparisonPair pair, String comparisonType, ColorMode colorMode,
+                                   DiffFormat diffFormat) {
+        try {
+            if (Objects.nonNull(pair.error())) {
+                throw new IllegalStateException(pair.error());
+            }
+            if (Objects.isNull(pair.modifiedFile())) {
+                throw new IllegalArgumentException("No modified file present with name " + pair.displayName());
+            }
+            return comparisonService.compare(pair.originalFile(), pair.modifiedFile(), pair.displayName(),
+                    comparisonType, colorMode, diffFormat, job);
+        } catch (Exception e) {
+            log.error("Comparison of {} in job {} failed", pair.displayName(), job.getId(), e);
+            return MyResponse.builder()
+                    .displayName(pair.displayName())
+                    .filename("")
+                    .isDiff(false)
+                    .message("Comparison failed.")
+                    .error(Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName()))
+                    .build();
+        } finally {
+            job.pairCompleted();
+        }
+    }
+
+    @Override
+    public Optional<ComparisonJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void removeExpiredJobs() {
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        for (ComparisonJob job : jobs.values()) {
+            // removed once, by whichever thread gets here first
+            if (job.isDone() && job.getFinishedAt() < expiredBefore && jobs.remove(job.getId(), job)
+                    && job.getState() == ComparisonJob.State.COMPLETED) {
+                job.getResults().forEach(comparisonService::release);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        pairExecutor.shutdownNow();
+        expiryExecutor.shutdownNow();
+    }
+}
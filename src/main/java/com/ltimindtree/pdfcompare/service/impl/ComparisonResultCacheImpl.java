@@ -0,0 +1,318 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.service.ComparisonResultCache;
+import com.ltimindtree.pdfcompare.web.dto.MyResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * In-memory index of finished comparisons, least recently used first. Expired entries are dropped when they are looked
+ * up or when a new result is stored, together with their diff PDF unless a caller still holds it. Each entry keeps the
+ * page progress of its comparison as a bit per page, which it reports again to the calls it answers.
+ */
+@Slf4j
+@Service
+public class ComparisonResultCacheImpl implements ComparisonResultCache {
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final long maxDiskBytes;
+
+    // access ordered, guarded by itself
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes;
+    // diff PDFs returned and not released yet, by path, with the number of holds, guarded by entries
+    private final Map<String, Integer> holds = new HashMap<>();
+    private final Map<Key, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public ComparisonResultCacheImpl(PdfCompareProperties properties, MeterRegistry meterRegistry) {
+        PdfCompareProperties.ResultCache resultCache = properties.getResultCache();
+        this.enabled = resultCache.isEnabled();
+        this.ttlMillis = resultCache.getTtl().toMillis();
+        this.maxDiskBytes = resultCache.getMaxDiskSize().toBytes();
+
+        this.hits = Counter.builder("pdf.result.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("pdf.result.cache.misses").register(meterRegistry);
+        this.coalesced = Counter.builder("pdf.result.cache.coalesced").register(meterRegistry);
+    }
+
+    @Override
+    public MyResponse getOrCompute(Key key, ComparisonProgressListener listener, Comparison comparison) throws Exception {
+        if (!enabled) {
+            return comparison.compare(listener);
+        }
+        Entry cached = acquire(key);
+        if (Objects.nonNull(cached)) {
+            hits.increment();
+            cached.progress().replay(listener);
+            return cached.response();
+        }
+
+        CompletableFuture<Entry> result = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inFlight.putIfAbsent(key, result);
+        if (Objects.nonNull(running)) {
+            coalesced.increment();
+            log.info("Waiting for the identical comparison already running");
+            Entry entry = await(running);
+            if (!hold(entry)) {
+                // expired or evicted and deleted since, which only happens once its comparison released it
+                return getOrCompute(key, listener, comparison);
+            }
+            entry.progress().replay(listener);
+            return entry.response();
+        }
+        try {
+            // an identical comparison may have finished between the lookup and the registration
+            Entry entry = acquire(key);
+            if (Objects.isNull(entry)) {
+                misses.increment();
+                ProgressRecorder progress = new ProgressRecorder(listener);
+                MyResponse response = comparison.compare(progress);
+                entry = put(key, response, progress.snapshot());
+            } else {
+                entry.progress().replay(listener);
+            }
+            result.complete(entry);
+            return entry.response();
+        } catch (Exception | Error e) {
+            result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, result);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> running) throws Exception {
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception exception) {
+                throw exception;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the cached entry, held for the caller, {@code null} when there is none
+     */
+    private Entry acquire(Key key) {
+        Entry expired;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (Objects.isNull(entry)) {
+                return null;
+            }
+            if (!entry.isExpired(System.currentTimeMillis()) && entry.isDiffPresent()) {
+                holdDiff(entry);
+                return entry;
+            }
+            entries.remove(key);
+            diskBytes -= entry.size();
+            expired = isHeld(entry) ? null : entry;
+        }
+        if (Objects.nonNull(expired)) {
+            expired.deleteDiff();
+        }
+        return null;
+    }
+
+    /**
+     * Holds the diff of an entry another call stored.
+     *
+     * @return {@code false} when the entry is neither cached nor held any more, its diff PDF is then deleted
+     */
+    private boolean hold(Entry entry) {
+        synchronized (entries) {
+            if (!isHeld(entry) && !entries.containsValue(entry)) {
+                return false;
+            }
+            holdDiff(entry);
+            return true;
+        }
+    }
+
+    @Override
+    public void release(String url) {
+        if (Objects.isNull(url)) {
+            return;
+        }
+        synchronized (entries) {
+            Integer held = holds.get(url);
+            if (Objects.isNull(held)) {
+                return;
+            }
+            if (held > 1) {
+                holds.put(url, held - 1);
+                return;
+            }
+            holds.remove(url);
+            if (entries.values().stream().anyMatch(entry -> url.equals(entry.response().getUrl()))) {
+                return;
+            }
+        }
+        deleteDiff(url);
+    }
+
+    // callers synchronize on entries
+    private void holdDiff(Entry entry) {
+        if (Objects.nonNull(entry.response().getUrl())) {
+            holds.merge(entry.response().getUrl(), 1, Integer::sum);
+        }
+    }
+
+    // callers synchronize on entries
+    private boolean isHeld(Entry entry) {
+        return Objects.nonNull(entry.response().getUrl()) && holds.containsKey(entry.response().getUrl());
+    }
+
+    /**
+     * @return the entry of the result, also when it is not cached, held for the caller
+     */
+    private Entry put(Key key, MyResponse response, PageProgress progress) throws IOException {
+        long size = Objects.nonNull(response.getUrl()) ? Files.size(Path.of(response.getUrl())) : 0;
+        long now = System.currentTimeMillis();
+        Entry added = new Entry(response, progress, size, now + ttlMillis);
+        if (size > maxDiskBytes) {
+            log.info("Diff PDF of {} bytes exceeds the result cache, not cached", size);
+            synchronized (entries) {
+                holdDiff(added);
+            }
+            return added;
+        }
+
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                // least recently used first, then anything expired
+                if (diskBytes + size > maxDiskBytes || entry.isExpired(now)) {
+                    iterator.remove();
+                    diskBytes -= entry.size();
+                    if (!isHeld(entry)) {
+                        evicted.add(entry);
+                    }
+                }
+            }
+            entries.put(key, added);
+            diskBytes += size;
+            holdDiff(added);
+        }
+        evicted.forEach(Entry::deleteDiff);
+        return added;
+    }
+
+    private record Entry(MyResponse response, PageProgress progress, long size, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        boolean isDiffPresent() {
+            return Objects.isNull(response.getUrl()) || Files.exists(Path.of(response.getUrl()));
+        }
+
+        void deleteDiff() {
+            if (Objects.nonNull(response.getUrl())) {
+                ComparisonResultCacheImpl.deleteDiff(response.getUrl());
+            }
+        }
+    }
+
+    private static void deleteDiff(String url) {
+        try {
+            Files.deleteIfExists(Path.of(url));
+        } catch (IOException e) {
+            log.debug("Could not delete {}", url, e);
+        }
+    }
+
+    /**
+     * Passes the progress of the comparison on to the listener of the call running it and records it.
+     */
+    private static final class ProgressRecorder implements ComparisonProgressListener {
+
+        private final ComparisonProgressListener listener;
+        // guarded by this
+        private int pageCount;
+        private final BitSet rendered = new BitSet();
+        private final BitSet compared = new BitSet();
+        private final BitSet different = new BitSet();
+        private final BitSet written = new BitSet();
+
+        private ProgressRecorder(ComparisonProgressListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void pagesToCompare(int pageCount) {
+            synchronized (this) {
+                this.pageCount += pageCount;
+            }
+            listener.pagesToCompare(pageCount);
+        }
+
+        @Override
+        public void pageRendered(int pageIndex) {
+            synchronized (this) {
+                rendered.set(pageIndex);
+            }
+            listener.pageRendered(pageIndex);
+        }
+
+        @Override
+        public void pageCompared(int pageIndex, boolean different) {
+            synchronized (this) {
+                compared.set(pageIndex);
+                this.different.set(pageIndex, different);
+            }
+            listener.pageCompared(pageIndex, different);
+        }
+
+        @Override
+        public void pageWritten(int pageIndex) {
+            synchronized (this) {
+                written.set(pageIndex);
+            }
+            listener.pageWritten(pageIndex);
+        }
+
+        synchronized PageProgress snapshot() {
+            return new PageProgress(pageCount, (BitSet) rendered.clone(), (BitSet) compared.clone(),
+                    (BitSet) different.clone(), (BitSet) written.clone());
+        }
+    }
+
+    /**
+     * The pages a comparison went through, reported again to the calls answered with its result.
+     */
+    private record PageProgress(int pageCount, BitSet rendered, BitSet compared, BitSet different, BitSet written) {
+
+        void replay(ComparisonProgressListener listener) {
+            listener.pagesToCompare(pageCount);
+            rendered.stream().forEach(listener::pageRendered);
+            compared.stream().forEach(page -> listener.pageCompared(page, different.get(page)));
+            written.stream().forEach(listener::pageWritten);
+        }
+    }
+}
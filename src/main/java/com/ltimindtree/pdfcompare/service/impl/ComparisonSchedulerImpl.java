@@ -0,0 +1,313 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.ComparisonScheduler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed workers taking tasks round robin from the requests that have tasks waiting. A request keeps at most
+ * {@code queueDepth} tasks waiting and at most {@code queueDepth + poolSize} tasks ahead of its consumer, and at most
+ * {@code maxRequests} requests run at a time, further ones are rejected instead of piling up work.
+ */
+@Slf4j
+@Service
+public class ComparisonSchedulerImpl implements ComparisonScheduler {
+
+    private final int poolSize;
+    private final int queueDepth;
+    private final int maxRequests;
+    private final List<Thread> workers = new ArrayList<>();
+
+    // guards everything below, requests are only touched with it held
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition taskAvailable = lock.newCondition();
+    private final Condition progress = lock.newCondition();
+    private final ArrayDeque<Request> ready = new ArrayDeque<>();
+    private int requests;
+    private int queued;
+    private int active;
+    private boolean shutdown;
+
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public ComparisonSchedulerImpl(PdfCompareProperties properties, MeterRegistry meterRegistry) {
+        PdfCompareProperties.Scheduler scheduler = properties.getScheduler();
+        this.poolSize = Math.max(1, scheduler.getPoolSize());
+        this.queueDepth = Math.max(1, scheduler.getQueueDepth());
+        this.maxRequests = Math.max(1, scheduler.getMaxRequests());
+
+        this.completed = Counter.builder("pdf.compare.scheduler.tasks").tag("outcome", "completed").register(meterRegistry);
+        this.failed = Counter.builder("pdf.compare.scheduler.tasks").tag("outcome", "failed").register(meterRegistry);
+        this.rejected = Counter.builder("pdf.compare.scheduler.rejected").register(meterRegistry);
+        Gauge.builder("pdf.compare.scheduler.active", this, ComparisonSchedulerImpl::getActive).register(meterRegistry);
+        Gauge.builder("pdf.compare.scheduler.queued", this, ComparisonSchedulerImpl::getQueued).register(meterRegistry);
+        Gauge.builder("pdf.compare.scheduler.requests", this, ComparisonSchedulerImpl::getRequests).register(meterRegistry);
+        Gauge.builder("pdf.compare.scheduler.utilization", this, ComparisonSchedulerImpl::getUtilization)
+                .register(meterRegistry);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pdf-compare-task-");
+        for (int i = 0; i < poolSize; i++) {
+            Thread worker = threadFactory.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("Comparison scheduler started with {} workers, {} tasks queued per request, {} requests at a time",
+                poolSize, queueDepth, maxRequests);
+    }
+
+    @Override
+    public <T> void invokeAll(List<? extends Callable<T>> tasks, ResultConsumer<? super T> consumer)
+            throws IOException, InterruptedException {
+        Request request = new Request();
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Comparison scheduler shut down");
+            }
+            if (requests >= maxRequests) {
+                rejected.increment();
+                throw new RejectedExecutionException("Too many comparisons running, " + requests + " of " + maxRequests);
+            }
+            requests++;
+            try {
+                int submitted = 0;
+                while (request.consumed < tasks.size() && Objects.isNull(request.failure)) {
+                    if (shutdown) {
+                        // no worker takes the tasks queued from now on
+                        fail(request, new RejectedExecutionException("Comparison scheduler shut down"));
+                    } else if (submitted < tasks.size() && request.queue.size() < queueDepth
+                            && submitted - request.consumed < queueDepth + poolSize) {
+                        enqueue(request, new Task(submitted, tasks.get(submitted)));
+                        submitted++;
+                    } else if (request.results.containsKey(request.consumed)) {
+                        consumeNext(request, consumer);
+                    } else {
+                        progress.await();
+                    }
+                }
+                // the tasks still running may fail too, the request is done only once they are
+                while (request.running > 0) {
+                    progress.await();
+                }
+            } finally {
+                drop(request);
+                requests--;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (Objects.nonNull(request.failure)) {
+            throw rethrow(request.failure);
+        }
+    }
+
+    /**
+     * Hands the next result to the consumer, with the lock released while the consumer runs.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void consumeNext(Request request, ResultConsumer<? super T> consumer) {
+        int index = request.consumed;
+        T result = (T) request.results.remove(index);
+        lock.unlock();
+        Throwable failure = null;
+        try {
+            consumer.accept(index, result);
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            lock.lock();
+        }
+        request.consumed++;
+        if (Objects.nonNull(failure)) {
+            fail(request, failure);
+        }
+        // room for the next task
+        progress.signalAll();
+    }
+
+    private void enqueue(Request request, Task task) {
+        request.queue.add(task);
+        queued++;
+        if (!request.scheduled) {
+            request.scheduled = true;
+            ready.add(request);
+        }
+        taskAvailable.signal();
+    }
+
+    /**
+     * Drops the tasks of a request not started yet and the results not consumed yet.
+     */
+    private void drop(Request request) {
+        queued -= request.queue.size();
+        request.queue.clear();
+        request.results.clear();
+        if (request.scheduled) {
+            request.scheduled = false;
+            ready.remove(request);
+        }
+    }
+
+    private void fail(Request request, Throwable failure) {
+        if (Objects.isNull(request.failure)) {
+            request.failure = failure;
+            drop(request);
+        }
+    }
+
+    private void work() {
+        lock.lock();
+        try {
+            while (true) {
+                while (ready.isEmpty() && !shutdown) {
+                    taskAvailable.awaitUninterruptibly();
+                }
+                if (shutdown) {
+                    return;
+                }
+                // the request goes to the back of the line, behind the other requests waiting
+                Request request = ready.poll();
+                Task task = request.queue.poll();
+                queued--;
+                if (request.queue.isEmpty()) {
+                    request.scheduled = false;
+                } else {
+                    ready.add(request);
+                }
+                run(request, task);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a task of a request, with the lock released while the task runs.
+     */
+    private void run(Request request, Task task) {
+        request.running++;
+        active++;
+        progress.signalAll();
+        lock.unlock();
+        Object result = null;
+        Throwable failure = null;
+        try {
+            result = task.callable().call();
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            lock.lock();
+        }
+        request.running--;
+        active--;
+        if (Objects.isNull(failure)) {
+            completed.increment();
+            if (Objects.isNull(request.failure)) {
+                request.results.put(task.index(), result);
+            }
+        } else {
+            failed.increment();
+            fail(request, failure);
+        }
+        progress.signalAll();
+    }
+
+    private static RuntimeException rethrow(Throwable failure) throws IOException {
+        if (failure instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        throw new CompletionException(failure);
+    }
+
+    int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return fraction of the workers running a task
+     */
+    double getUtilization() {
+        return (double) getActive() / poolSize;
+    }
+
+    int getRequests() {
+        lock.lock();
+        try {
+            return requests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            // requests still waiting for a worker fail instead of waiting forever
+            for (Request request : new ArrayList<>(ready)) {
+                request.failure = new RejectedExecutionException("Comparison scheduler shut down");
+                drop(request);
+            }
+            taskAvailable.signalAll();
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.forEach(Thread::interrupt);
+    }
+
+    private record Task(int index, Callable<?> callable) {
+    }
+
+    private static final class Request {
+        private final ArrayDeque<Task> queue = new ArrayDeque<>();
+        // results of the tasks done but not consumed yet, by task index
+        private final Map<Integer, Object> results = new HashMap<>();
+        private boolean scheduled;
+        private int running;
+        private int consumed;
+        private Throwable failure;
+    }
+}
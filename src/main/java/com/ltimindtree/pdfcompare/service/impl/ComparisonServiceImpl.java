@@ -0,0 +1,123 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.ComparePDFText;
+import com.ltimindtree.pdfcompare.service.*;
+import com.ltimindtree.pdfcompare.util.ContentHash;
+import com.ltimindtree.pdfcompare.web.dto.MyResponse;
+import com.ltimindtree.pdfcompare.web.dto.PageDiff;
+import com.ltimindtree.pdfcompare.web.dto.TextChange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+@Slf4j
+@Service
+public class ComparisonServiceImpl implements ComparisonService {
+
+    private static final Set<String> COMPARISON_TYPES = Set.of("image", "font", "text", "textdiff");
+
+    private final PdfUtilityService pdfUtilityService;
+    private final PageRenderService pageRenderService;
+    private final ComparisonResultCache comparisonResultCache;
+    private final TextDiffService textDiffService;
+    private final ComparisonScheduler comparisonScheduler;
+
+    public ComparisonServiceImpl(PdfUtilityService pdfUtilityService, PageRenderService pageRenderService,
+                                 ComparisonResultCache comparisonResultCache, TextDiffService textDiffService,
+                                 ComparisonScheduler comparisonScheduler) {
+        this.pdfUtilityService = pdfUtilityService;
+        this.pageRenderService = pageRenderService;
+        this.comparisonResultCache = comparisonResultCache;
+        this.textDiffService = textDiffService;
+        this.comparisonScheduler = comparisonScheduler;
+    }
+
+    @Override
+    public MyResponse compare(File originalFile, File modifiedFile, String displayName, String comparisonType,
+                              ColorMode colorMode, DiffFormat diffFormat, ComparisonProgressListener listener) throws Exception {
+        if (!COMPARISON_TYPES.contains(comparisonType)) {
+            throw new RuntimeException("Method not supported");
+        }
+        ComparisonResultCache.Key key = new ComparisonResultCache.Key(
+                ContentHash.sha256(originalFile),
+                ContentHash.sha256(modifiedFile),
+                comparisonType,
+                "image".equals(comparisonType) ? colorMode : null,
+                "image".equals(comparisonType) ? diffFormat : null
+        );
+        // the hashes of the key are the ones the page cache keys the rendered pages by as well
+        MyResponse response = comparisonResultCache.getOrCompute(
+                key, listener, recorder ->
+                        compareUncached(originalFile, modifiedFile, key, comparisonType, colorMode, diffFormat, recorder)
+        );
+        // the cached response is shared, it may have been computed for a file of another name
+        return response.toBuilder()
+                .displayName(displayName)
+                .build();
+    }
+
+    @Override
+    public void release(MyResponse response) {
+        comparisonResultCache.release(response.getUrl());
+    }
+
+    private MyResponse compareUncached(File originalFile, File modifiedFile, ComparisonResultCache.Key key,
+                                       String comparisonType, ColorMode colorMode, DiffFormat diffFormat,
+                                       ComparisonProgressListener listener) throws Exception {
+        if ("textdiff".equals(comparisonType)) {
+            List<TextChange> changes = textDiffService.compare(originalFile, modifiedFile, listener);
+            return MyResponse.builder()
+                    .filename("")
+                    .isDiff(!changes.isEmpty())
+                    .message(changes.isEmpty() ? "Files are identical." : "Files are not identical.")
+                    .changes(changes)
+                    .build();
+        }
+        if ("image".equals(comparisonType) && diffFormat == DiffFormat.MANIFEST) {
+            List<PageDiff> pageDiffs = pdfUtilityService.compareAndDescribe(originalFile, modifiedFile,
+                    key.originalHash(), key.modifiedHash(), colorMode, listener);
+            return MyResponse.builder()
+                    .filename("")
+                    .isDiff(!pageDiffs.isEmpty())
+                    .message(pageDiffs.isEmpty() ? "Files are identical." : "Files are not identical.")
+                    .pages(pageDiffs)
+                    .build();
+        }
+
+        String filename = originalFile.getName();
+        String filenameWithoutExtension = filename.substring(0, filename.lastIndexOf('.'));
+        String diffPdfPath;
+        if ("image".equals(comparisonType)) {
+            // Render, compare and write the diff page by page
+            diffPdfPath = pdfUtilityService.compareAndCreateDiffPdf(
+                    originalFile, modifiedFile, key.originalHash(), key.modifiedHash(), filenameWithoutExtension,
+                    colorMode, diffFormat, listener
+            );
+        } else {
+            ComparePDFText comparePDFText = new ComparePDFText(pageRenderService, comparisonScheduler);
+            // the differing pages are written as they are rendered, not collected first
+            diffPdfPath = pdfUtilityService.createDiffPdf(filenameWithoutExtension, listener,
+                    sink -> comparePDFText.compareFontOrText(originalFile.getPath(), modifiedFile.getPath(),
+                            key.originalHash(), key.modifiedHash(), "font".equals(comparisonType), listener, sink));
+        }
+
+        if (Objects.isNull(diffPdfPath)) {
+            return MyResponse.builder()
+                    .filename("")
+                    .isDiff(false)
+                    .message("Files are identical.")
+                    .build();
+        }
+        // file response
+        return MyResponse.builder()
+                .filename(filename)
+                .url(diffPdfPath)
+                .isDiff(true)
+                .message("Files are not identical.")
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.diff.TileDiffEngine;
+import com.ltimindtree.pdfcompare.service.ColorMode;
+import com.ltimindtree.pdfcompare.service.PageRenderSession;
+import com.ltimindtree.pdfcompare.web.dto.DiffMask;
+import com.ltimindtree.pdfcompare.web.dto.DiffRegion;
+import com.ltimindtree.pdfcompare.web.dto.PageDiff;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Describes a differing page for the {@code manifest} format: the differing regions in user space with a thumbnail
+ * of each, and a run-length encoded mask of the differing pixels.
+ */
+class DiffManifestBuilder {
+
+    private final float dpi;
+    private final int maskCellSize;
+    private final float thumbnailDpi;
+    private final TileDiffEngine tileDiffEngine;
+
+    /**
+     * @param dpi            resolution the differences were found at
+     * @param tileDiffEngine engine the differences were found with, the mask uses its tolerance
+     */
+    DiffManifestBuilder(float dpi, PdfCompareProperties.Manifest manifest, TileDiffEngine tileDiffEngine) {
+        this.dpi = dpi;
+        this.maskCellSize = Math.max(1, manifest.getMaskCellSize());
+        this.thumbnailDpi = manifest.getThumbnailDpi();
+        this.tileDiffEngine = tileDiffEngine;
+    }
+
+    PageDiff build(PageRenderSession modifiedSession, int pageIndex, BufferedImage expectedImage,
+                   BufferedImage actualImage, List<Rectangle> differences) throws IOException {
+        PageSpace pageSpace = PdfPageRenderSession.join(modifiedSession.submit(
+                (document, renderer) -> PageSpace.of(document.getPage(pageIndex))));
+        List<BufferedImage> thumbnails = PdfPageRenderSession.join(modifiedSession.renderRegions(
+                pageIndex, thumbnailDpi, ColorMode.RGB, differences.stream().map(this::toThumbnailPixels).toList()));
+
+        List<DiffRegion> regions = new ArrayList<>(differences.size());
+        for (int i = 0; i < differences.size(); i++) {
+            Rectangle2D region = pageSpace.toUserSpace(differences.get(i), dpi);
+            regions.add(DiffRegion.builder()
+                    .x((float) region.getX())
+                    .y((float) region.getY())
+                    .width((float) region.getWidth())
+                    .height((float) region.getHeight())
+                    .thumbnail(toPngDataUrl(thumbnails.get(i)))
+                    .build());
+        }
+
+        int width = Math.max(expectedImage.getWidth(), actualImage.getWidth());
+        int height = Math.max(expectedImage.getHeight(), actualImage.getHeight());
+        BitSet mask = tileDiffEngine.differenceMask(expectedImage, actualImage, differences, maskCellSize);
+        PDRectangle cropBox = pageSpace.getCropBox();
+        return PageDiff.builder()
+                .page(pageIndex + 1)
+                .cropBox(new float[]{cropBox.getLowerLeftX(), cropBox.getLowerLeftY(),
+                        cropBox.getUpperRightX(), cropBox.getUpperRightY()})
+                .rotation(pageSpace.getRotation())
+                .regions(regions)
+                .mask(DiffMask.builder()
+                        .columns((width + maskCellSize - 1) / maskCellSize)
+                        .rows((height + maskCellSize - 1) / maskCellSize)
+                        .cellSize(maskCellSize * 72f / dpi)
+                        .runs(runLengths(mask))
+                        .build())
+                .build();
+    }
+
+    private Rectangle toThumbnailPixels(Rectangle difference) {
+        double scale = thumbnailDpi / dpi;
+        int x = (int) Math.floor(difference.x * scale);
+        int y = (int) Math.floor(difference.y * scale);
+        int right = (int) Math.ceil((difference.x + difference.width) * scale);
+        int bottom = (int) Math.ceil((difference.y + difference.height) * scale);
+        return new Rectangle(x, y, Math.max(1, right - x), Math.max(1, bottom - y));
+    }
+
+    /**
+     * Alternating counts of unchanged and changed cells, starting with unchanged; the cells after the last run are
+     * unchanged.
+     */
+    static int[] runLengths(BitSet mask) {
+        IntStream.Builder runs = IntStream.builder();
+        int position = 0;
+        for (int start = mask.nextSetBit(0); start >= 0; start = mask.nextSetBit(position)) {
+            int end = mask.nextClearBit(start);
+            runs.add(start - position);
+            runs.add(end - start);
+            position = end;
+        }
+        return runs.build().toArray();
+    }
+
+    private static String toPngDataUrl(BufferedImage image) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+    }
+}
@@ -0,0 +1,318 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.service.PageRenderSession;
+import com.ltimindtree.pdfcompare.util.Images;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.multipdf.LayerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.apache.pdfbox.util.Matrix;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Adds the pages of a diff PDF: the original page on the left, the modified page on the right and the differences
+ * highlighted on the modified page. Pages are added one at a time, in page order.
+ * <p>
+ * Raster pages are encoded on the encode pool, each image into a scratch document of its own, while the following
+ * pages are still compared; only {@code pagesInFlight} pages wait for their encoding, and they are appended in page
+ * order. Identical images are written to the diff PDF once and drawn wherever they occur. Create the diff document
+ * with a temp file stream cache, so the written pages do not stay in the heap either.
+ */
+class DiffPageWriter implements Closeable {
+
+    static final Color HIGHLIGHT_COLOR = new Color(255, 0, 0, 51);
+
+    private final PDDocument document;
+    private final float dpi;
+    private final Executor encodeExecutor;
+    private final int pagesInFlight;
+    private final ComparisonProgressListener listener;
+
+    private final Queue<PendingPage> pendingPages = new ArrayDeque<>();
+    // images already in the diff document by the hex digest of their pixels, read by the encoding tasks
+    private final Map<String, PDImageXObject> writtenImages = new ConcurrentHashMap<>();
+    // the documents vector pages are imported from, one per session: the layer utility remembers the objects it
+    // imported by source document, so shared fonts and images are copied once only while the source stays the same
+    private final Map<PageRenderSession, PDDocument> importSources = new IdentityHashMap<>();
+    // created with the first vector page
+    private LayerUtility layerUtility;
+
+    /**
+     * @param dpi      resolution the differences were found at
+     * @param listener notified as pages are appended to the document
+     */
+    DiffPageWriter(PDDocument document, float dpi, Executor encodeExecutor, int pagesInFlight,
+                   ComparisonProgressListener listener) {
+        this.document = document;
+        this.dpi = dpi;
+        this.encodeExecutor = encodeExecutor;
+        this.pagesInFlight = Math.max(1, pagesInFlight);
+        this.listener = listener;
+    }
+
+    /**
+     * Queues both pages as lossless rasters, one pixel per point. The images must not change until the page is
+     * appended, which happens in a later call or in {@link #flush()}.
+     */
+    void addRasterPage(int pageIndex, BufferedImage image1, BufferedImage image2, List<Rectangle> differences)
+            throws IOException {
+        pendingPages.add(new PendingPage(pageIndex,
+                image1.getWidth(), image1.getHeight(), encode(image1),
+                image2.getWidth(), image2.getHeight(), encode(image2),
+                differences));
+        while (pendingPages.size() > pagesInFlight) {
+            appendNext();
+        }
+    }
+
+    /**
+     * Appends the queued raster pages, call before the document is saved.
+     */
+    void flush() throws IOException {
+        while (!pendingPages.isEmpty()) {
+            appendNext();
+        }
+    }
+
+    /**
+     * Drops the pages not yet appended, once their encoding is done, and closes the documents pages were imported
+     * from. Call after the document is saved.
+     */
+    @Override
+    public void close() {
+        for (PendingPage pendingPage : pendingPages) {
+            pendingPage.image1().thenAccept(EncodedImage::close);
+            pendingPage.image2().thenAccept(EncodedImage::close);
+        }
+        pendingPages.clear();
+        importSources.values().forEach(IOUtils::closeQuietly);
+        importSources.clear();
+    }
+
+    private CompletableFuture<EncodedImage> encode(BufferedImage image) {
+        return CompletableFuture.supplyAsync(() -> {
+            String digest = HexFormat.of().formatHex(Images.sha256(image));
+            if (writtenImages.containsKey(digest)) {
+                return new EncodedImage(digest, null, null);
+            }
+            PDDocument scratch = new PDDocument(IOUtils.createTempFileOnlyStreamCache());
+            try {
+                PDImageXObject encoded = LosslessFactory.createFromImage(scratch, image);
+                return new EncodedImage(digest, scratch, encoded.getCOSObject());
+            } catch (IOException e) {
+                IOUtils.closeQuietly(scratch);
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                IOUtils.closeQuietly(scratch);
+                throw e;
+            }
+        }, encodeExecutor);
+    }
+
+    private void appendNext() throws IOException {
+        PendingPage pendingPage = pendingPages.remove();
+        PDImageXObject image1 = toDocument(PdfPageRenderSession.join(pendingPage.image1()));
+        PDImageXObject image2 = toDocument(PdfPageRenderSession.join(pendingPage.image2()));
+
+        // Calculate the width and height of the page
+        float pageWidth = Math.addExact(pendingPage.width1(), pendingPage.width2());
+        float pageHeight = Math.max(pendingPage.height1(), pendingPage.height2());
+
+        // Create a new page
+        PDPage page = new PDPage(new PDRectangle(pageWidth, pageHeight));
+        document.addPage(page);
+
+        // Create a content stream for the page
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            // Draw the first image on the left side
+            contentStream.drawImage(image1, 0, 0, pendingPage.width1(), pendingPage.height1());
+
+            // Draw the second image next to the first one
+            contentStream.drawImage(image2, pendingPage.width1(), 0, pendingPage.width2(), pendingPage.height2());
+
+            // Highlight the differences on top of the second image, as vector rectangles so the raster stays untouched
+            highlight(contentStream, pendingPage.differences(), pendingPage.width1(), pendingPage.height2(), 1);
+        }
+        listener.pageWritten(pendingPage.pageIndex());
+    }
+
+    /**
+     * The image of the diff document with the pixels of the encoded image, copied from its scratch document unless an
+     * identical image was written before.
+     */
+    private PDImageXObject toDocument(EncodedImage encodedImage) throws IOException {
+        try {
+            PDImageXObject written = writtenImages.get(encodedImage.digest());
+            if (Objects.nonNull(written)) {
+                return written;
+            }
+            PDImageXObject image = new PDImageXObject(new PDStream(copyStream(encodedImage.stream())), null);
+            writtenImages.put(encodedImage.digest(), image);
+            return image;
+        } finally {
+            encodedImage.close();
+        }
+    }
+
+    private COSStream copyStream(COSStream source) throws IOException {
+        COSStream copy = document.getDocument().createCOSStream();
+        try (InputStream in = source.createRawInputStream(); OutputStream out = copy.createRawOutputStream()) {
+            in.transferTo(out);
+        }
+        for (Map.Entry<COSName, COSBase> entry : source.entrySet()) {
+            if (COSName.LENGTH.equals(entry.getKey())) {
+                continue;
+            }
+            COSBase value = entry.getValue() instanceof COSObject reference ? reference.getObject() : entry.getValue();
+            // a soft mask is a stream of the scratch document as well
+            copy.setItem(entry.getKey(), value instanceof COSStream stream ? copyStream(stream) : value);
+        }
+        return copy;
+    }
+
+    /**
+     * Adds both pages as form XObjects imported from the documents, so text and vector content stay as they are and
+     * nothing is rasterised. The differences are scaled from the comparison resolution to points. A page only one of
+     * the documents has is set against a blank page of its size.
+     */
+    void addVectorPage(PageRenderSession originalSession, PageRenderSession modifiedSession, int pageIndex,
+                       List<Rectangle> differences) throws IOException {
+        flush();
+        ImportedPage original = pageIndex < originalSession.getNumberOfPages()
+                ? importPage(importSource(originalSession), pageIndex) : null;
+        ImportedPage modified = pageIndex < modifiedSession.getNumberOfPages()
+                ? importPage(importSource(modifiedSession), pageIndex) : null;
+        if (Objects.isNull(original)) {
+            original = modified.blank();
+        } else if (Objects.isNull(modified)) {
+            modified = original.blank();
+        }
+
+        PDPage page = new PDPage(new PDRectangle(original.width() + modified.width(),
+                Math.max(original.height(), modified.height())));
+        document.addPage(page);
+
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            if (Objects.nonNull(original.form())) {
+                contentStream.drawForm(original.form());
+            }
+
+            if (Objects.nonNull(modified.form())) {
+                contentStream.saveGraphicsState();
+                contentStream.transform(Matrix.getTranslateInstance(original.width(), 0));
+                contentStream.drawForm(modified.form());
+                contentStream.restoreGraphicsState();
+            }
+
+            highlight(contentStream, differences, original.width(), modified.height(), 72f / dpi);
+        }
+        listener.pageWritten(pageIndex);
+    }
+
+    private PDDocument importSource(PageRenderSession session) throws IOException {
+        PDDocument sourceDocument = importSources.get(session);
+        if (Objects.isNull(sourceDocument)) {
+            sourceDocument = session.load();
+            importSources.put(session, sourceDocument);
+        }
+        return sourceDocument;
+    }
+
+    private ImportedPage importPage(PDDocument sourceDocument, int pageIndex) throws IOException {
+        if (Objects.isNull(layerUtility)) {
+            layerUtility = new LayerUtility(document);
+        }
+        PDPage sourcePage = sourceDocument.getPage(pageIndex);
+        PDFormXObject form = layerUtility.importPageAsForm(sourceDocument, sourcePage);
+
+        // the matrix of the layer utility squeezes turned pages into the unturned box, which would move the
+        // highlights off their differences
+        PageSpace pageSpace = PageSpace.of(sourcePage);
+        form.setMatrix(pageSpace.getDisplayTransform());
+        return new ImportedPage(form, pageSpace.getWidth(), pageSpace.getHeight());
+    }
+
+    /**
+     * @param left  x of the left edge of the highlighted page
+     * @param top   y of the top edge of the highlighted page, image pixels have their origin top left and PDF user
+     *              space bottom left
+     * @param scale points per pixel of the differences
+     */
+    private static void highlight(PDPageContentStream contentStream, List<Rectangle> differences, float left, float top,
+                                  float scale) throws IOException {
+        if (differences.isEmpty()) {
+            return;
+        }
+        PDExtendedGraphicsState highlightState = new PDExtendedGraphicsState();
+        highlightState.setNonStrokingAlphaConstant(HIGHLIGHT_COLOR.getAlpha() / 255f);
+        highlightState.setStrokingAlphaConstant(HIGHLIGHT_COLOR.getAlpha() / 255f);
+        contentStream.saveGraphicsState();
+        contentStream.setGraphicsStateParameters(highlightState);
+        contentStream.setNonStrokingColor(new Color(HIGHLIGHT_COLOR.getRGB() & 0xFFFFFF));
+        contentStream.setStrokingColor(new Color(HIGHLIGHT_COLOR.getRGB() & 0xFFFFFF));
+        contentStream.setLineWidth(1);
+        for (Rectangle difference : differences) {
+            contentStream.addRect(left + difference.x * scale,
+                    top - (difference.y + difference.height) * scale,
+                    difference.width * scale, difference.height * scale);
+        }
+        contentStream.fillAndStroke();
+        contentStream.restoreGraphicsState();
+    }
+
+    /**
+     * @param form the page, {@code null} for a blank page
+     */
+    private record ImportedPage(PDFormXObject form, float width, float height) {
+
+        ImportedPage blank() {
+            return new ImportedPage(null, width, height);
+        }
+    }
+
+    private record PendingPage(int pageIndex,
+                               int width1, int height1, CompletableFuture<EncodedImage> image1,
+                               int width2, int height2, CompletableFuture<EncodedImage> image2,
+                               List<Rectangle> differences) {
+    }
+
+    /**
+     * @param scratch document holding the encoded stream, {@code null} when an identical image was already written
+     */
+    private record EncodedImage(String digest, PDDocument scratch, COSStream stream) implements Closeable {
+
+        @Override
+        public void close() {
+            IOUtils.closeQuietly(scratch);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -53,21 +54,39 @@ public class DrawPrintTextLocations extends PDFTextStripper {
     private AffineTransform rotateAT;
     private AffineTransform transAT;
     private Graphics2D g2d;
-    private List<TextPosition> diffTextPositions;
+    private final TextPositionIndex diffTextPositions;
 
     /**
      * Instantiate a new PDFTextStripper object.
      *
-     * @param document Document to process
-     * @param filename File name
+     * @param document          Document to process
+     * @param filename          File name
+     * @param diffTextPositions Positions to highlight on every page
      * @throws IOException If there is an error loading the properties.
      */
     public DrawPrintTextLocations(PDDocument document, String filename, List<TextPosition> diffTextPositions) throws IOException {
+        this(document, filename, index(Map.of(TextPositionIndex.ANY_PAGE, diffTextPositions)));
+    }
+
+    /**
+     * @param diffTextPositions Positions to highlight by 1-based page number
+     */
+    public DrawPrintTextLocations(PDDocument document, String filename, Map<Integer, List<TextPosition>> diffTextPositions) throws IOException {
+        this(document, filename, index(diffTextPositions));
+    }
+
+    private DrawPrintTextLocations(PDDocument document, String filename, TextPositionIndex diffTextPositions) throws IOException {
         this.document = document; // must initialize here, base class initializes too late
         this.filename = filename;
         this.diffTextPositions = diffTextPositions;
     }
 
+    private static TextPositionIndex index(Map<Integer, List<TextPosition>> textPositionsByPage) {
+        TextPositionIndex index = new TextPositionIndex();
+        textPositionsByPage.forEach((page, textPositions) -> textPositions.forEach(text -> index.add(page, text)));
+        return index;
+    }
+
     /**
      * This will print the documents data.
      *
@@ -76,13 +95,18 @@ public class DrawPrintTextLocations extends PDFTextStripper {
      */
     public void highlightDifference(String filename) throws IOException {
         try (PDDocument document = Loader.loadPDF(new File(filename))) {
-            DrawPrintTextLocations stripper = new DrawPrintTextLocations(document, filename, diffTextPositions);
-            stripper.setSortByPosition(true);
+            new DrawPrintTextLocations(document, filename, diffTextPositions).highlightDifferences();
+        }
+    }
 
-            for (int page = 0; page < document.getNumberOfPages(); ++page) {
-                stripper.stripPage(page);
-                log.info("Processed page {}", page);
-            }
+    /**
+     * Writes an image of every page of the document with the differing text highlighted, next to the file.
+     */
+    public void highlightDifferences() throws IOException {
+        setSortByPosition(true);
+        for (int page = 0; page < document.getNumberOfPages(); ++page) {
+            stripPage(page);
+            log.info("Processed page {}", page);
         }
     }
 
@@ -227,15 +251,13 @@ public class DrawPrintTextLocations extends PDFTextStripper {
     protected void writeString(String string, List<TextPosition> textPositions) throws IOException {
         textPositions = textPositions
                 .stream()
-                .filter(textPosition -> containsTextPosition(diffTextPositions, textPosition))
+                .filter(textPosition -> diffTextPositions.contains(getCurrentPageNo(), textPosition))
                 .collect(Collectors.toList());
 
         for (TextPosition text : textPositions) {
-            System.out.println("String[" + text.getXDirAdj() + ","
-                    + text.getYDirAdj() + " fs=" + text.getFontSize() + " xscale="
-                    + text.getXScale() + " height=" + text.getHeightDir() + " space="
-                    + text.getWidthOfSpace() + " width="
-                    + text.getWidthDirAdj() + "]" + text.getUnicode());
+            log.debug("String[{},{} fs={} xscale={} height={} space={} width={}]{}", text.getXDirAdj(),
+                    text.getYDirAdj(), text.getFontSize(), text.getXScale(), text.getHeightDir(),
+                    text.getWidthOfSpace(), text.getWidthDirAdj(), text.getUnicode());
 
             // glyph space -> user space
             // note: text.getTextMatrix() is *not* the Text Matrix, it's the Text Rendering Matrix
@@ -289,17 +311,7 @@ public class DrawPrintTextLocations extends PDFTextStripper {
     }
 
     public static boolean areEqual(TextPosition textPosition1, TextPosition textPosition2) {
-        // Check if characters are equal
-        boolean charactersEqual = textPosition1.getUnicode().equals(textPosition2.getUnicode());
-
-        // Check if font sizes are equal
-        boolean fontSizesEqual = Math.abs(textPosition1.getFontSize() - textPosition2.getFontSize()) < 0.001;
-
-        // Check if positions are equal (within a small tolerance)
-        boolean positionsEqual = Math.abs(textPosition1.getX() - textPosition2.getX()) < 0.001 &&
-                Math.abs(textPosition1.getY() - textPosition2.getY()) < 0.001;
-
-        // Return true if all properties are equal
-        return charactersEqual && fontSizesEqual && positionsEqual;
+        // same characters and font size at the same position, within a small tolerance
+        return TextPositionIndex.areEqual(textPosition1, textPosition2);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.service.DrawPrintTextLocationsService;
+import com.ltimindtree.pdfcompare.service.PageRenderService;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.TextPosition;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class DrawPrintTextLocationsServiceImpl implements DrawPrintTextLocationsService {
+
+    private final PageRenderService pageRenderService;
+
+    public DrawPrintTextLocationsServiceImpl(PageRenderService pageRenderService) {
+        this.pageRenderService = pageRenderService;
+    }
+
+    @Override
+    public void highlightDifference(String filename, List<TextPosition> diffTextPositions) throws IOException {
+        try (PDDocument document = pageRenderService.load(new File(filename))) {
+            new DrawPrintTextLocations(document, filename, diffTextPositions).highlightDifferences();
+        }
+    }
+
+    @Override
+    public void highlightDifference(String filename, Map<Integer, List<TextPosition>> diffTextPositionsByPage) throws IOException {
+        try (PDDocument document = pageRenderService.load(new File(filename))) {
+            new DrawPrintTextLocations(document, filename, diffTextPositionsByPage).highlightDifferences();
+        }
+    }
+}
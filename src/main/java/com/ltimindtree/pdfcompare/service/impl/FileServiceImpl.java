@@ -7,7 +7,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Date;
@@ -29,9 +28,9 @@ public class FileServiceImpl implements FileService {
         assert originalFileName != null;
         String modifiedFileName = new Date().getTime() + "_" + originalFileName;
 
-        // Save the uploaded file with the modified file name to the specified directory
+        // Stream the uploaded file to the specified directory with the modified file name, it is never held in memory
         Path filePath = Paths.get(uploadDir, modifiedFileName);
-        Files.write(filePath, file.getBytes());
+        file.transferTo(filePath);
         return filePath.toString();
     }
 
@@ -0,0 +1,370 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.ColorMode;
+import com.ltimindtree.pdfcompare.service.PageRasterCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Two tier LRU page cache. Pages live in memory up to {@code pdf-compare.page-cache.memory-max-size}; the least
+ * recently used ones are then spilled to disk as deflated raw rasters, which decode faster than PNG and come back with
+ * the exact image type they were rendered in. Keys are content hashes, so the disk tier stays valid across restarts.
+ * <p>
+ * Spilling deflates a whole page, it runs on a thread of its own rather than on the render thread which evicted the
+ * page. Only a few evicted pages wait for it, pages evicted while they do are dropped instead of held in the heap.
+ */
+@Slf4j
+@Service
+public class PageRasterCacheImpl implements PageRasterCache {
+
+    private static final String EXTENSION = ".raster";
+    private static final int MAGIC = 0x50524331;
+    private static final int CHUNK_INTS = 16 * 1024;
+    private static final int SPILL_QUEUE_CAPACITY = 2;
+
+    private final long memoryMaxBytes;
+    private final long diskMaxBytes;
+    private final Path directory;
+    // null when there is no disk tier
+    private final ThreadPoolExecutor spillExecutor;
+
+    // both maps are access ordered and guarded by themselves
+    private final LinkedHashMap<Key, BufferedImage> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+    private final Counter memoryEvictions;
+    private final Counter diskEvictions;
+    private final Counter spillsDropped;
+
+    public PageRasterCacheImpl(PdfCompareProperties properties, MeterRegistry meterRegistry) {
+        PdfCompareProperties.PageCache pageCache = properties.getPageCache();
+        this.memoryMaxBytes = pageCache.getMemoryMaxSize().toBytes();
+        this.directory = Paths.get(pageCache.getDirectory());
+        this.diskMaxBytes = openDiskTier(pageCache.getDiskMaxSize().toBytes());
+
+        this.memoryHits = Counter.builder("pdf.page.cache.hits").tag("tier", "memory").register(meterRegistry);
+        this.diskHits = Counter.builder("pdf.page.cache.hits").tag("tier", "disk").register(meterRegistry);
+        this.misses = Counter.builder("pdf.page.cache.misses").register(meterRegistry);
+        this.memoryEvictions = Counter.builder("pdf.page.cache.evictions").tag("tier", "memory").register(meterRegistry);
+        this.diskEvictions = Counter.builder("pdf.page.cache.evictions").tag("tier", "disk").register(meterRegistry);
+        this.spillsDropped = Counter.builder("pdf.page.cache.spills.dropped").register(meterRegistry);
+        Gauge.builder("pdf.page.cache.size", this, PageRasterCacheImpl::getMemoryBytes)
+                .tag("tier", "memory").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("pdf.page.cache.size", this, PageRasterCacheImpl::getDiskBytes)
+                .tag("tier", "disk").baseUnit("bytes").register(meterRegistry);
+
+        this.spillExecutor = diskMaxBytes > 0
+                ? new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(SPILL_QUEUE_CAPACITY), new CustomizableThreadFactory("page-cache-spill-"),
+                (task, executor) -> spillsDropped.increment())
+                : null;
+    }
+
+    @Override
+    public BufferedImage get(Key key) {
+        BufferedImage image;
+        synchronized (memory) {
+            image = memory.get(key);
+        }
+        if (Objects.nonNull(image)) {
+            memoryHits.increment();
+            return image;
+        }
+
+        boolean onDisk;
+        synchronized (disk) {
+            onDisk = disk.get(key) != null;
+        }
+        if (onDisk) {
+            Path file = directory.resolve(fileName(key));
+            try {
+                image = read(file);
+                diskHits.increment();
+                putInMemory(key, image);
+                return image;
+            } catch (IOException e) {
+                log.warn("Could not read cached page {}, rendering it again", file, e);
+                removeFromDisk(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public void put(Key key, BufferedImage image) {
+        putInMemory(key, image);
+    }
+
+    private void putInMemory(Key key, BufferedImage image) {
+        long size = sizeOf(image);
+        Map<Key, BufferedImage> evicted = new LinkedHashMap<>();
+        synchronized (memory) {
+            if (size > memoryMaxBytes) {
+                evicted.put(key, image);
+            } else {
+                BufferedImage previous = memory.put(key, image);
+                memoryBytes += size - (Objects.isNull(previous) ? 0 : sizeOf(previous));
+                Iterator<Map.Entry<Key, BufferedImage>> eldest = memory.entrySet().iterator();
+                while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+                    Map.Entry<Key, BufferedImage> entry = eldest.next();
+                    eldest.remove();
+                    memoryBytes -= sizeOf(entry.getValue());
+                    evicted.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        // spilling deflates a whole page, the render thread which evicted it does not wait for that
+        evicted.forEach((evictedKey, evictedImage) -> {
+            memoryEvictions.increment();
+            if (Objects.nonNull(spillExecutor) && isSpillable(evictedImage)) {
+                spillExecutor.execute(() -> spill(evictedKey, evictedImage));
+            }
+        });
+    }
+
+    private void spill(Key key, BufferedImage image) {
+        synchronized (disk) {
+            if (disk.containsKey(key)) {
+                return;
+            }
+        }
+
+        Path file = directory.resolve(fileName(key));
+        long size;
+        try {
+            Path temp = Files.createTempFile(directory, "spill", ".tmp");
+            try {
+                write(temp, image);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            size = Files.size(file);
+        } catch (IOException e) {
+            log.warn("Could not spill page {} to disk", key, e);
+            return;
+        }
+
+        List<Key> evicted = new ArrayList<>();
+        synchronized (disk) {
+            Long previous = disk.put(key, size);
+            diskBytes += size - (Objects.isNull(previous) ? 0 : previous);
+            Iterator<Map.Entry<Key, Long>> eldest = disk.entrySet().iterator();
+            while (diskBytes > diskMaxBytes && eldest.hasNext()) {
+                Map.Entry<Key, Long> entry = eldest.next();
+                eldest.remove();
+                diskBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+            }
+        }
+        for (Key evictedKey : evicted) {
+            diskEvictions.increment();
+            deleteQuietly(directory.resolve(fileName(evictedKey)));
+        }
+    }
+
+    private void removeFromDisk(Key key) {
+        synchronized (disk) {
+            Long size = disk.remove(key);
+            if (Objects.nonNull(size)) {
+                diskBytes -= size;
+            }
+        }
+        deleteQuietly(directory.resolve(fileName(key)));
+    }
+
+    /**
+     * Creates the cache folder and indexes the pages left there by a previous run, oldest first.
+     *
+     * @return the disk budget, {@code 0} when the folder cannot be used
+     */
+    private long openDiskTier(long maxBytes) {
+        if (maxBytes <= 0) {
+            return 0;
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(directory)) {
+                files = list.toList();
+            }
+            List<Path> pages = new ArrayList<>();
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    deleteQuietly(file);
+                } else if (name.endsWith(EXTENSION)) {
+                    pages.add(file);
+                }
+            }
+            pages.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+            for (Path file : pages) {
+                Key key = parseFileName(file.getFileName().toString());
+                if (Objects.isNull(key)) {
+                    continue;
+                }
+                long size = Files.size(file);
+                disk.put(key, size);
+                diskBytes += size;
+            }
+            log.info("Page cache on disk at {} holds {} pages, {} bytes", directory, disk.size(), diskBytes);
+            return maxBytes;
+        } catch (IOException e) {
+            log.warn("Page cache folder {} is not usable, pages are cached in memory only", directory, e);
+            return 0;
+        }
+    }
+
+    private static String fileName(Key key) {
+        return key.fileHash() + "_" + key.pageIndex() + "_" + key.dpi() + "_" + key.colorMode() + EXTENSION;
+    }
+
+    private static Key parseFileName(String name) {
+        String[] parts = name.substring(0, name.length() - EXTENSION.length()).split("_");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            return new Key(parts[0], Integer.parseInt(parts[1]), Float.parseFloat(parts[2]), ColorMode.valueOf(parts[3]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Only images whose raster can be recreated with {@code new BufferedImage(width, height, type)} are spilled, which
+     * covers everything {@link org.apache.pdfbox.rendering.PDFRenderer} returns.
+     */
+    private static boolean isSpillable(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return image.getType() != BufferedImage.TYPE_CUSTOM
+                && Objects.isNull(image.getRaster().getParent())
+                && buffer.getNumBanks() == 1
+                && (buffer instanceof DataBufferInt || buffer instanceof DataBufferByte);
+    }
+
+    private static void write(Path file, BufferedImage image) throws IOException {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)), deflater, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(image.getType());
+            out.writeInt(image.getWidth());
+            out.writeInt(image.getHeight());
+            out.writeInt(buffer.getSize());
+            if (buffer instanceof DataBufferInt intBuffer) {
+                int[] data = intBuffer.getData();
+                ByteBuffer chunk = ByteBuffer.allocate(CHUNK_INTS * Integer.BYTES);
+                for (int offset = 0; offset < data.length; offset += CHUNK_INTS) {
+                    int length = Math.min(CHUNK_INTS, data.length - offset);
+                    chunk.clear();
+                    chunk.asIntBuffer().put(data, offset, length);
+                    out.write(chunk.array(), 0, length * Integer.BYTES);
+                }
+            } else {
+                out.write(((DataBufferByte) buffer).getData());
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static BufferedImage read(Path file) throws IOException {
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), inflater, 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cached page");
+            }
+            int type = in.readInt();
+            int width = in.readInt();
+            int height = in.readInt();
+            BufferedImage image = new BufferedImage(width, height, type);
+            DataBuffer buffer = image.getRaster().getDataBuffer();
+            if (in.readInt() != buffer.getSize()) {
+                throw new IOException("Cached page does not match its image type");
+            }
+            if (buffer instanceof DataBufferInt intBuffer) {
+                int[] data = intBuffer.getData();
+                byte[] chunk = new byte[CHUNK_INTS * Integer.BYTES];
+                for (int offset = 0; offset < data.length; offset += CHUNK_INTS) {
+                    int length = Math.min(CHUNK_INTS, data.length - offset);
+                    in.readFully(chunk, 0, length * Integer.BYTES);
+                    ByteBuffer.wrap(chunk, 0, length * Integer.BYTES).asIntBuffer().get(data, offset, length);
+                }
+            } else {
+                in.readFully(((DataBufferByte) buffer).getData());
+            }
+            return image;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt cached page", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not delete {}", file, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (Objects.nonNull(spillExecutor)) {
+            spillExecutor.shutdownNow();
+        }
+    }
+
+    private long getMemoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    private long getDiskBytes() {
+        synchronized (disk) {
+            return diskBytes;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.PageRasterCache;
+import com.ltimindtree.pdfcompare.service.PageRenderService;
+import com.ltimindtree.pdfcompare.service.PageRenderSession;
+import com.ltimindtree.pdfcompare.util.PdfDocumentLoader;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Service
+public class PageRenderServiceImpl implements PageRenderService {
+
+    private final ExecutorService renderExecutor;
+    private final int poolSize;
+    private final int pagesInFlight;
+    private final PageRasterCache pageRasterCache;
+    private final PdfDocumentLoader documentLoader;
+
+    /**
+     * A render service without page cache, for use outside the application context.
+     */
+    public PageRenderServiceImpl(PdfCompareProperties properties) {
+        this(properties, null);
+    }
+
+    @Autowired
+    public PageRenderServiceImpl(PdfCompareProperties properties, PageRasterCache pageRasterCache) {
+        this.pageRasterCache = properties.getPageCache().isEnabled() ? pageRasterCache : null;
+        this.documentLoader = new PdfDocumentLoader(properties.getRender().isMemoryMapped());
+        this.poolSize = Math.max(1, properties.getRender().getPoolSize());
+        this.pagesInFlight = Math.max(1, properties.getRender().getPagesInFlight());
+        this.renderExecutor = Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("pdf-render-"));
+        log.info("Page render pool started with {} threads, {} pages in flight", poolSize, pagesInFlight);
+    }
+
+    @Override
+    public PageRenderSession open(File file, String fileHash) throws IOException {
+        return new PdfPageRenderSession(file, fileHash, documentLoader, renderExecutor, poolSize, pagesInFlight,
+                pageRasterCache);
+    }
+
+    @Override
+    public PDDocument load(File file) throws IOException {
+        return documentLoader.load(file);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,85 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * The page as it is displayed and rendered: its crop box turned clockwise by its {@code /Rotate}, with the origin at
+ * the bottom left corner. Maps between that space, the pixels of the rendered page and the user space of the page.
+ */
+final class PageSpace {
+
+    private final PDRectangle cropBox;
+    private final int rotation;
+    private final AffineTransform displayTransform;
+
+    private PageSpace(PDRectangle cropBox, int rotation) {
+        this.cropBox = cropBox;
+        this.rotation = rotation;
+        this.displayTransform = displayTransform(cropBox, rotation);
+    }
+
+    static PageSpace of(PDPage page) {
+        return new PageSpace(page.getCropBox(), ((page.getRotation() % 360) + 360) % 360);
+    }
+
+    PDRectangle getCropBox() {
+        return cropBox;
+    }
+
+    int getRotation() {
+        return rotation;
+    }
+
+    float getWidth() {
+        return isTurned() ? cropBox.getHeight() : cropBox.getWidth();
+    }
+
+    float getHeight() {
+        return isTurned() ? cropBox.getWidth() : cropBox.getHeight();
+    }
+
+    /**
+     * Maps user space to the displayed page, {@code (0, 0, width, height)}.
+     */
+    AffineTransform getDisplayTransform() {
+        return new AffineTransform(displayTransform);
+    }
+
+    /**
+     * @param pixels rectangle in the page rendered at {@code dpi}, origin top left
+     * @return the rectangle in user space
+     */
+    Rectangle2D toUserSpace(Rectangle pixels, float dpi) {
+        double scale = 72.0 / dpi;
+        Rectangle2D displayed = new Rectangle2D.Double(pixels.x * scale, getHeight() - (pixels.y + pixels.height) * scale,
+                pixels.width * scale, pixels.height * scale);
+        try {
+            return displayTransform.createInverse().createTransformedShape(displayed).getBounds2D();
+        } catch (NoninvertibleTransformException e) {
+            throw new IllegalStateException("Display transform of a page is always invertible", e);
+        }
+    }
+
+    private boolean isTurned() {
+        return rotation == 90 || rotation == 270;
+    }
+
+    private static AffineTransform displayTransform(PDRectangle cropBox, int rotation) {
+        float llx = cropBox.getLowerLeftX();
+        float lly = cropBox.getLowerLeftY();
+        float urx = cropBox.getUpperRightX();
+        float ury = cropBox.getUpperRightY();
+        return switch (rotation) {
+            case 90 -> new AffineTransform(0, -1, 1, 0, -lly, urx);
+            case 180 -> new AffineTransform(-1, 0, 0, -1, urx, ury);
+            case 270 -> new AffineTransform(0, 1, -1, 0, ury, -llx);
+            default -> AffineTransform.getTranslateInstance(-llx, -lly);
+        };
+    }
+}
@@ -0,0 +1,230 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.service.ColorMode;
+import com.ltimindtree.pdfcompare.service.PageRasterCache;
+import com.ltimindtree.pdfcompare.service.PageRenderSession;
+import com.ltimindtree.pdfcompare.util.ContentHash;
+import com.ltimindtree.pdfcompare.util.PdfDocumentLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.RenderDestination;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+@Slf4j
+class PdfPageRenderSession implements PageRenderSession {
+
+    private final File file;
+    private final PdfDocumentLoader documentLoader;
+    private final Executor executor;
+    private final int maxHandles;
+    private final int pagesInFlight;
+    private final int numberOfPages;
+    private final PageRasterCache pageRasterCache;
+    private final String fileHash;
+
+    private final List<DocumentHandle> handles = new ArrayList<>();
+    private final BlockingQueue<DocumentHandle> idleHandles = new LinkedBlockingQueue<>();
+    private final Set<CompletableFuture<?>> pendingTasks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param fileHash        SHA-256 of the file, {@code null} to hash it here when the page cache is used
+     * @param pageRasterCache cache of rendered pages, {@code null} to always render
+     */
+    PdfPageRenderSession(File file, String fileHash, PdfDocumentLoader documentLoader, Executor executor, int maxHandles,
+                         int pagesInFlight, PageRasterCache pageRasterCache) throws IOException {
+        this.file = file;
+        this.documentLoader = documentLoader;
+        this.executor = executor;
+        this.maxHandles = maxHandles;
+        this.pagesInFlight = pagesInFlight;
+        this.pageRasterCache = pageRasterCache;
+        this.fileHash = Objects.isNull(pageRasterCache) || Objects.nonNull(fileHash) ? fileHash : ContentHash.sha256(file);
+
+        DocumentHandle handle = new DocumentHandle(documentLoader.load(file));
+        handles.add(handle);
+        idleHandles.add(handle);
+        this.numberOfPages = handle.document.getNumberOfPages();
+    }
+
+    @Override
+    public int getNumberOfPages() {
+        return numberOfPages;
+    }
+
+    @Override
+    public CompletableFuture<BufferedImage> render(int pageIndex, float dpi, ColorMode colorMode) {
+        if (Objects.isNull(pageRasterCache)) {
+            return submit((document, renderer) -> renderer.renderImageWithDPI(pageIndex, dpi, colorMode.getImageType()));
+        }
+        PageRasterCache.Key key = new PageRasterCache.Key(fileHash, pageIndex, dpi, colorMode);
+        return submit((document, renderer) -> {
+            BufferedImage image = pageRasterCache.get(key);
+            if (Objects.isNull(image)) {
+                image = renderer.renderImageWithDPI(pageIndex, dpi, colorMode.getImageType());
+                pageRasterCache.put(key, image);
+            }
+            return image;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<BufferedImage>> renderRegions(int pageIndex, float dpi, ColorMode colorMode, List<Rectangle> regions) {
+        return submit((document, renderer) -> {
+            List<BufferedImage> images = new ArrayList<>(regions.size());
+            for (Rectangle region : regions) {
+                images.add(renderRegion(renderer, pageIndex, dpi, colorMode, region));
+            }
+            return images;
+        });
+    }
+
+    private static BufferedImage renderRegion(PDFRenderer renderer, int pageIndex, float dpi, ColorMode colorMode,
+                                              Rectangle region) throws IOException {
+        BufferedImage image = new BufferedImage(region.width, region.height, colorMode.getBufferedImageType());
+        Graphics2D graphics = image.createGraphics();
+        try {
+            // same white background as PDFRenderer.renderImage
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(0, 0, region.width, region.height);
+            graphics.translate(-region.x, -region.y);
+            graphics.clipRect(region.x, region.y, region.width, region.height);
+            float scale = dpi / 72;
+            renderer.renderPageToGraphics(pageIndex, graphics, scale, scale, RenderDestination.EXPORT);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(DocumentTask<T> task) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            DocumentHandle handle = acquire();
+            try {
+                return task.apply(handle.document, handle.renderer);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } finally {
+                idleHandles.add(handle);
+            }
+        }, executor);
+        pendingTasks.add(future);
+        future.whenComplete((result, throwable) -> pendingTasks.remove(future));
+        return future;
+    }
+
+    @Override
+    public PDDocument load() throws IOException {
+        return documentLoader.load(file);
+    }
+
+    @Override
+    public Iterator<BufferedImage> pages(float dpi, ColorMode colorMode, int pageCount) {
+        return pages(dpi, colorMode, IntStream.range(0, Math.min(pageCount, numberOfPages)).boxed().toList());
+    }
+
+    @Override
+    public Iterator<BufferedImage> pages(float dpi, ColorMode colorMode, List<Integer> pageIndices) {
+        return new Iterator<>() {
+            private final Deque<CompletableFuture<BufferedImage>> window = new ArrayDeque<>();
+            private int nextToRender = 0;
+            private int nextToReturn = 0;
+
+            @Override
+            public boolean hasNext() {
+                return nextToReturn < pageIndices.size();
+            }
+
+            @Override
+            public BufferedImage next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                while (nextToRender < pageIndices.size() && window.size() < pagesInFlight) {
+                    window.add(render(pageIndices.get(nextToRender++), dpi, colorMode));
+                }
+                nextToReturn++;
+                return join(window.poll());
+            }
+        };
+    }
+
+    /**
+     * Waits for the result of a task, rethrowing its failure unwrapped.
+     */
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private DocumentHandle acquire() {
+        DocumentHandle handle = idleHandles.poll();
+        if (handle != null) {
+            return handle;
+        }
+        synchronized (handles) {
+            if (handles.size() < maxHandles) {
+                try {
+                    handle = new DocumentHandle(documentLoader.load(file));
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                handles.add(handle);
+                return handle;
+            }
+        }
+        try {
+            return idleHandles.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a document handle");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Documents must outlive every task still rendering on them
+        for (CompletableFuture<?> task : pendingTasks) {
+            try {
+                task.join();
+            } catch (CompletionException | CancellationException e) {
+                log.debug("Pending render task failed while closing session", e);
+            }
+        }
+        synchronized (handles) {
+            for (DocumentHandle handle : handles) {
+                handle.document.close();
+            }
+            handles.clear();
+        }
+    }
+
+    private static final class DocumentHandle {
+        private final PDDocument document;
+        private final PDFRenderer renderer;
+
+        private DocumentHandle(PDDocument document) {
+            this.document = document;
+            this.renderer = new PDFRenderer(document);
+        }
+    }
+}
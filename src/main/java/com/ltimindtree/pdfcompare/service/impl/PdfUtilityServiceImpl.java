@@ -1,18 +1,26 @@
 package com.ltimindtree.pdfcompare.service.impl;
 
-import com.github.romankh3.image.comparison.ImageComparison;
-import com.github.romankh3.image.comparison.model.ImageComparisonResult;
-import com.github.romankh3.image.comparison.model.ImageComparisonState;
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.diff.PixelKernel;
+import com.ltimindtree.pdfcompare.diff.PixelKernels;
+import com.ltimindtree.pdfcompare.diff.TileDiffEngine;
+import com.ltimindtree.pdfcompare.service.ColorMode;
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.service.ComparisonScheduler;
+import com.ltimindtree.pdfcompare.service.DiffFormat;
+import com.ltimindtree.pdfcompare.service.DiffPageSink;
 import com.ltimindtree.pdfcompare.service.FileService;
+import com.ltimindtree.pdfcompare.service.PageRenderService;
+import com.ltimindtree.pdfcompare.service.PageRenderSession;
 import com.ltimindtree.pdfcompare.service.PdfUtilityService;
+import com.ltimindtree.pdfcompare.util.Images;
+import com.ltimindtree.pdfcompare.util.PageFingerprinter;
+import com.ltimindtree.pdfcompare.web.dto.PageDiff;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
-import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import java.awt.*;
@@ -21,124 +29,273 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
 public class PdfUtilityServiceImpl implements PdfUtilityService {
 
     private final FileService fileService;
+    private final PageRenderService pageRenderService;
+    private final float dpi;
+    private final boolean fingerprintEnabled;
+    private final CoarseToFinePrefilter prefilter;
+    private final TileDiffEngine tileDiffEngine;
+    private final ForkJoinPool bandPool;
+    private final ExecutorService encodeExecutor;
+    private final int encodePagesInFlight;
+    private final DiffManifestBuilder diffManifestBuilder;
+    private final ComparisonScheduler comparisonScheduler;
 
-    public PdfUtilityServiceImpl(FileService fileService) {
+    public PdfUtilityServiceImpl(FileService fileService, PageRenderService pageRenderService,
+                                 ComparisonScheduler comparisonScheduler, PdfCompareProperties properties) {
         this.fileService = fileService;
+        this.pageRenderService = pageRenderService;
+        this.comparisonScheduler = comparisonScheduler;
+        this.dpi = properties.getImage().getDpi();
+        this.fingerprintEnabled = properties.getImage().isFingerprintEnabled();
+        PixelKernel kernel = PixelKernels.select(properties.getImage().isVectorKernelEnabled());
+        int bandParallelism = properties.getImage().getBandParallelism();
+        this.bandPool = bandParallelism > 1 ? new ForkJoinPool(bandParallelism, PdfUtilityServiceImpl::newBandThread, null, false) : null;
+        this.tileDiffEngine = new TileDiffEngine(properties.getImage().getTileSize(), properties.getImage().getPixelTolerance(),
+                properties.getImage().getMinDifferingPixels(), kernel, bandPool, properties.getImage().getBandMinPixels());
+        this.prefilter = properties.getImage().getPrefilter().isEnabled()
+                ? new CoarseToFinePrefilter(properties.getImage().getPrefilter(), tileDiffEngine)
+                : null;
+        int encodePoolSize = Math.max(1, properties.getImage().getEncodePoolSize());
+        this.encodeExecutor = Executors.newFixedThreadPool(encodePoolSize, new CustomizableThreadFactory("pdf-encode-"));
+        this.encodePagesInFlight = encodePoolSize;
+        this.diffManifestBuilder = new DiffManifestBuilder(dpi, properties.getImage().getManifest(), tileDiffEngine);
     }
 
     @Override
-    public Map<Integer, BufferedImage> convertPDFToImage(File file) throws IOException {
-        PDDocument document = Loader.loadPDF(file);
-        PDFRenderer pdfRenderer = new PDFRenderer(document);
+    public String compareAndCreateDiffPdf(File originalFile, File modifiedFile, String originalHash, String modifiedHash,
+                                          String filename, ColorMode colorMode, DiffFormat diffFormat,
+                                          ComparisonProgressListener listener) throws Exception {
+        try (PageRenderSession originalSession = pageRenderService.open(originalFile, originalHash);
+             PageRenderSession modifiedSession = pageRenderService.open(modifiedFile, modifiedHash);
+             PDDocument diffDocument = newDiffDocument();
+             DiffPageWriter diffPageWriter = newDiffPageWriter(diffDocument, listener)) {
 
-        Map<Integer, BufferedImage> bufferedImagesMap = new HashMap<>();
+            if (diffFormat == DiffFormat.VECTOR) {
+                comparePages(originalSession, modifiedSession, colorMode, listener,
+                        (page, expectedImage, actualImage, differences) -> differences,
+                        (page, differences) -> diffPageWriter.addVectorPage(originalSession, modifiedSession, page, differences));
+            } else {
+                comparePages(originalSession, modifiedSession, colorMode, listener,
+                        (page, expectedImage, actualImage, differences) -> {
+                            if (colorMode != ColorMode.RGB) {
+                                // the diff PDF is always in color, the highlights keep their position at the same resolution
+                                BufferedImage[] images = renderPair(originalSession, modifiedSession, page, dpi, ColorMode.RGB);
+                                return new DifferingPage(images[0], images[1], differences);
+                            }
+                            return new DifferingPage(expectedImage, actualImage, differences);
+                        },
+                        (page, differingPage) -> diffPageWriter.addRasterPage(page, differingPage.expectedImage(),
+                                differingPage.actualImage(), differingPage.differences()));
+            }
 
-        for (int page = 0; page < document.getNumberOfPages(); ++page) {
-            // Iterate over each page and convert it to an image
-            bufferedImagesMap.put(page, pdfRenderer.renderImageWithDPI(page, 300));
+            diffPageWriter.flush();
+            if (diffDocument.getNumberOfPages() == 0) {
+                return null;
+            }
+            return fileService.saveFile(diffDocument, "diff", filename);
         }
-        document.close();
-        return bufferedImagesMap;
     }
 
     @Override
-    public Map<Integer, List<BufferedImage>> comparePDFs(
-            Map<Integer, BufferedImage> expectedBufferedImagesMap,
-            Map<Integer, BufferedImage> actualBufferedImagesMap
-    ) throws InterruptedException {
-
-        Map<Integer, List<BufferedImage>> diffImagesMap = new ConcurrentHashMap<>();
-
-        ExecutorService executor = Executors.newFixedThreadPool(5);
-
-        if (expectedBufferedImagesMap.size() == actualBufferedImagesMap.size()) {
-            expectedBufferedImagesMap.forEach((key, expectedImage) -> {
-                BufferedImage actualImage = actualBufferedImagesMap.get(key);
-
-                executor.submit(() -> {
-                    long startTime = System.nanoTime();
-                    log.info("Comparing PDF {}", key);
-                    this.compareImage(key, expectedImage, actualImage, diffImagesMap);
-                    long endTime = System.nanoTime();
-                    log.info("Completed compare PDF {}, took {} ms", key, (endTime - startTime)/1000000);
-                });
-            });
+    public List<PageDiff> compareAndDescribe(File originalFile, File modifiedFile, String originalHash,
+                                             String modifiedHash, ColorMode colorMode,
+                                             ComparisonProgressListener listener) throws Exception {
+        try (PageRenderSession originalSession = pageRenderService.open(originalFile, originalHash);
+             PageRenderSession modifiedSession = pageRenderService.open(modifiedFile, modifiedHash)) {
+            List<PageDiff> pageDiffs = new ArrayList<>();
+            comparePages(originalSession, modifiedSession, colorMode, listener,
+                    (page, expectedImage, actualImage, differences) -> diffManifestBuilder.build(
+                            // a page the modified document does not have is described as it is in the original one
+                            page < modifiedSession.getNumberOfPages() ? modifiedSession : originalSession,
+                            page, expectedImage, actualImage, differences),
+                    (page, pageDiff) -> {
+                        pageDiffs.add(pageDiff);
+                        listener.pageWritten(page);
+                    });
+            return pageDiffs;
+        }
+    }
+
+    /**
+     * Compares the documents on the comparison scheduler, every page pair a task of one request. The task of a differing
+     * page goes on with {@code differingPage}, and the results are handed to {@code consumer} on the calling thread in
+     * page order. The pages only the longer document has are differing pages, set against a blank page.
+     */
+    private <T> void comparePages(PageRenderSession originalSession, PageRenderSession modifiedSession, ColorMode colorMode,
+                                  ComparisonProgressListener listener, DifferingPageTask<T> differingPage,
+                                  DifferingPageConsumer<T> consumer) throws IOException, InterruptedException {
+        int originalPageCount = originalSession.getNumberOfPages();
+        int modifiedPageCount = modifiedSession.getNumberOfPages();
+        int pageCount = Math.min(originalPageCount, modifiedPageCount);
+        int totalPageCount = Math.max(originalPageCount, modifiedPageCount);
+        if (originalPageCount != modifiedPageCount) {
+            log.warn("Page count differs ({} vs {}), the pages after the first {} are differing pages",
+                    originalPageCount, modifiedPageCount, pageCount);
         }
 
-        // Shutdown ExecutorService
-        executor.shutdown();
+        listener.pagesToCompare(totalPageCount);
+        List<Integer> pagesToRender = new ArrayList<>(fingerprintEnabled
+                ? pagesWithDifferentFingerprints(originalSession, modifiedSession, pageCount)
+                : IntStream.range(0, pageCount).boxed().toList());
+        Set<Integer> renderedPages = new HashSet<>(pagesToRender);
+        IntStream.range(pageCount, totalPageCount).forEach(pagesToRender::add);
+        IntStream.range(0, pageCount)
+                .filter(page -> !renderedPages.contains(page))
+                .forEach(page -> listener.pageCompared(page, false));
 
-        // Wait for all tasks to complete
-        boolean awaitTermination = executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        // identical pages give no result
+        List<Callable<T>> tasks = pagesToRender.stream()
+                .<Callable<T>>map(page -> () -> comparePage(originalSession, modifiedSession, page, colorMode, differingPage))
+                .toList();
+        comparisonScheduler.invokeAll(tasks, (index, result) -> {
+            int page = pagesToRender.get(index);
+            listener.pageRendered(page);
+            listener.pageCompared(page, Objects.nonNull(result));
+            if (Objects.nonNull(result)) {
+                consumer.accept(page, result);
+            }
+        });
+    }
 
-        if (!awaitTermination) {
-            throw new InterruptedException();
+    /**
+     * Renders and compares a page pair, at low resolution first when the prefilter is enabled. Only the page pair is
+     * held as rasters, they are released once the task is done with them.
+     *
+     * @return the result of {@code differingPage}, {@code null} when the pages are identical
+     */
+    private <T> T comparePage(PageRenderSession originalSession, PageRenderSession modifiedSession, int page,
+                              ColorMode colorMode, DifferingPageTask<T> differingPage) throws IOException {
+        if (page >= Math.min(originalSession.getNumberOfPages(), modifiedSession.getNumberOfPages())) {
+            // the page was added or removed, all of it differs from the blank page it is set against
+            BufferedImage[] images = renderPair(originalSession, modifiedSession, page, dpi, colorMode);
+            Rectangle wholePage = new Rectangle(0, 0,
+                    Math.max(images[0].getWidth(), images[1].getWidth()),
+                    Math.max(images[0].getHeight(), images[1].getHeight()));
+            return differingPage.apply(page, images[0], images[1], List.of(wholePage));
+        }
+        long startTime = System.nanoTime();
+        if (Objects.nonNull(prefilter)) {
+            BufferedImage[] coarseImages = renderPair(originalSession, modifiedSession, page, prefilter.getDpi(),
+                    CoarseToFinePrefilter.coarseMode(colorMode));
+            if (!prefilter.mayDiffer(coarseImages[0], coarseImages[1])) {
+                log.info("Page {} is identical at {} DPI, skipped full resolution", page, prefilter.getDpi());
+                return null;
+            }
         }
-        return diffImagesMap;
+        BufferedImage[] images = renderPair(originalSession, modifiedSession, page, dpi, colorMode);
+        List<Rectangle> differences = tileDiffEngine.compare(images[0], images[1]);
+        T result = differences.isEmpty() ? null : differingPage.apply(page, images[0], images[1], differences);
+        long endTime = System.nanoTime();
+        log.info("Completed compare PDF {}, took {} ms", page, (endTime - startTime) / 1000000);
+        return result;
     }
 
-    private void compareImage(Integer key, BufferedImage expectedImage, BufferedImage actualImage, Map<Integer, List<BufferedImage>> diffImagesMap) {
-        //Create ImageComparison object with result destination and compare the images.
-        ImageComparison imageComparison = new ImageComparison(expectedImage, actualImage);
-        imageComparison.setRectangleLineWidth(1);
-        imageComparison.setDifferenceRectangleColor(new Color(255, 0, 0, 51));
-        imageComparison.setDifferenceRectangleFilling(true, 20.0);
+    /**
+     * Renders a page of both documents, a page only one of them has is paired with a blank page of its size.
+     */
+    private static BufferedImage[] renderPair(PageRenderSession originalSession, PageRenderSession modifiedSession,
+                                              int page, float dpi, ColorMode colorMode) {
+        CompletableFuture<BufferedImage> expectedFuture = page < originalSession.getNumberOfPages()
+                ? originalSession.render(page, dpi, colorMode) : null;
+        CompletableFuture<BufferedImage> actualFuture = page < modifiedSession.getNumberOfPages()
+                ? modifiedSession.render(page, dpi, colorMode) : null;
+        if (Objects.isNull(expectedFuture)) {
+            BufferedImage actualImage = PdfPageRenderSession.join(actualFuture);
+            return new BufferedImage[]{Images.blankLike(actualImage), actualImage};
+        }
+        if (Objects.isNull(actualFuture)) {
+            BufferedImage expectedImage = PdfPageRenderSession.join(expectedFuture);
+            return new BufferedImage[]{expectedImage, Images.blankLike(expectedImage)};
+        }
+        return new BufferedImage[]{PdfPageRenderSession.join(expectedFuture), PdfPageRenderSession.join(actualFuture)};
+    }
 
-        ImageComparisonResult imageComparisonResult = imageComparison.compareImages();
+    private List<Integer> pagesWithDifferentFingerprints(PageRenderSession originalSession, PageRenderSession modifiedSession, int pageCount) {
+        CompletableFuture<List<byte[]>> originalFuture = originalSession.submit(
+                (document, renderer) -> PageFingerprinter.fingerprints(document, pageCount));
+        CompletableFuture<List<byte[]>> modifiedFuture = modifiedSession.submit(
+                (document, renderer) -> PageFingerprinter.fingerprints(document, pageCount));
+        List<byte[]> originalFingerprints = PdfPageRenderSession.join(originalFuture);
+        List<byte[]> modifiedFingerprints = PdfPageRenderSession.join(modifiedFuture);
 
-        if (!imageComparisonResult.getImageComparisonState().equals(ImageComparisonState.MATCH)) {
-            diffImagesMap.put(key, Arrays.asList(expectedImage, imageComparisonResult.getResult()));
-        }
+        List<Integer> pages = IntStream.range(0, pageCount)
+                .filter(page -> !Arrays.equals(originalFingerprints.get(page), modifiedFingerprints.get(page)))
+                .boxed()
+                .toList();
+        log.info("{} of {} pages have identical fingerprints, skipped rendering", pageCount - pages.size(), pageCount);
+        return pages;
     }
 
     @Override
-    public String createDiffPdf(Map<Integer, BufferedImage> originalBufferedImagesMap, Map<Integer, List<BufferedImage>> diffImagesMap, String filename) {
-        try (PDDocument document = new PDDocument()) {
-            originalBufferedImagesMap.forEach((key, image) -> {
-                List<BufferedImage> diffImages = diffImagesMap.get(key);
-                if (Objects.isNull(diffImages)) {
-                } else {
-                    // Calculate the width and height of the page
-                    BufferedImage image1 = diffImages.get(0);
-                    BufferedImage image2 = diffImages.get(1);
-
-                    float pageWidth = Math.addExact(image1.getWidth(), image2.getWidth());
-                    float pageHeight = Math.max(image1.getHeight(), image2.getHeight());
-
-                    // Create a new page
-                    PDPage page = new PDPage(new PDRectangle(pageWidth, pageHeight));
-                    document.addPage(page);
-
-                    // Create a content stream for the page
-                    PDPageContentStream contentStream;
-                    try {
-                        contentStream = new PDPageContentStream(document, page);
-                        // Draw the first image on the left side
-                        contentStream.drawImage(LosslessFactory.createFromImage(document, image1), 0, 0, image1.getWidth(), image1.getHeight());
-
-                        // Draw the second image next to the first one
-                        contentStream.drawImage(LosslessFactory.createFromImage(document, image2), image1.getWidth(), 0, image2.getWidth(), image2.getHeight());
-
-                        // Close the content stream
-                        contentStream.close();
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            });
+    public String createDiffPdf(String filename, ComparisonProgressListener listener, DiffPageSink.Source source)
+            throws Exception {
+        try (PDDocument document = newDiffDocument();
+             DiffPageWriter diffPageWriter = newDiffPageWriter(document, listener)) {
+            source.writeTo((page, originalImage, modifiedImage) ->
+                    diffPageWriter.addRasterPage(page, originalImage, modifiedImage, List.of()));
+            diffPageWriter.flush();
+            if (document.getNumberOfPages() == 0) {
+                return null;
+            }
             return fileService.saveFile(document, "diff", filename);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
     }
+
+    /**
+     * The diff document keeps its streams in a temp file until it is saved, not in the heap.
+     */
+    private static PDDocument newDiffDocument() {
+        return new PDDocument(IOUtils.createTempFileOnlyStreamCache());
+    }
+
+    private DiffPageWriter newDiffPageWriter(PDDocument document, ComparisonProgressListener listener) {
+        return new DiffPageWriter(document, dpi, encodeExecutor, encodePagesInFlight, listener);
+    }
+
+    private static ForkJoinWorkerThread newBandThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("pdf-band-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        encodeExecutor.shutdownNow();
+        if (Objects.nonNull(bandPool)) {
+            bandPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Goes on with a differing page on the comparison scheduler, once its differences are found.
+     */
+    @FunctionalInterface
+    private interface DifferingPageTask<T> {
+        T apply(int page, BufferedImage expectedImage, BufferedImage actualImage, List<Rectangle> differences)
+                throws IOException;
+    }
+
+    /**
+     * Takes the results of the differing pages on the thread of the comparison, in page order.
+     */
+    @FunctionalInterface
+    private interface DifferingPageConsumer<T> {
+        void accept(int page, T result) throws IOException;
+    }
+
+    private record DifferingPage(BufferedImage expectedImage, BufferedImage actualImage, List<Rectangle> differences) {
+    }
 }
@@ -0,0 +1,136 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.diff.SequenceDiff;
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.service.ComparisonScheduler;
+import com.ltimindtree.pdfcompare.service.PageRenderService;
+import com.ltimindtree.pdfcompare.service.TextDiffService;
+import com.ltimindtree.pdfcompare.text.TextLineExtractor;
+import com.ltimindtree.pdfcompare.text.TextLineExtractor.TextLine;
+import com.ltimindtree.pdfcompare.web.dto.TextChange;
+import com.ltimindtree.pdfcompare.web.dto.TextSpan;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+@Service
+public class TextDiffServiceImpl implements TextDiffService {
+
+    /**
+     * Edits on either side of the middle snake after which a differing part of the documents is no longer diffed line
+     * by line, or word by word within replaced lines.
+     */
+    private static final int MAX_EDITS = 1000;
+
+    private final PageRenderService pageRenderService;
+    private final ComparisonScheduler comparisonScheduler;
+
+    public TextDiffServiceImpl(PageRenderService pageRenderService, ComparisonScheduler comparisonScheduler) {
+        this.pageRenderService = pageRenderService;
+        this.comparisonScheduler = comparisonScheduler;
+    }
+
+    @Override
+    public List<TextChange> compare(File originalFile, File modifiedFile, ComparisonProgressListener listener)
+            throws IOException, InterruptedException {
+        List<TextLine> originalLines;
+        List<TextLine> modifiedLines;
+        int pageCount;
+        try (PDDocument original = pageRenderService.load(originalFile);
+             PDDocument modified = pageRenderService.load(modifiedFile)) {
+            pageCount = Math.max(original.getNumberOfPages(), modified.getNumberOfPages());
+            listener.pagesToCompare(pageCount);
+            // the documents are extracted at the same time, each by a task of its own
+            List<Callable<List<TextLine>>> extractions = List.of(
+                    () -> TextLineExtractor.extract(original),
+                    () -> TextLineExtractor.extract(modified));
+            List<List<TextLine>> lines = comparisonScheduler.invokeAll(extractions);
+            originalLines = lines.get(0);
+            modifiedLines = lines.get(1);
+        }
+
+        Map<String, Integer> symbols = new HashMap<>();
+        // documents which are mostly different would make the line diff close to quadratic, their differing parts
+        // are replaced as a whole once they take more than MAX_EDITS edits to split
+        List<SequenceDiff.Edit> edits = SequenceDiff.diff(
+                intern(originalLines.stream().map(TextLine::text).toList(), symbols),
+                intern(modifiedLines.stream().map(TextLine::text).toList(), symbols),
+                MAX_EDITS);
+
+        List<TextChange> changes = new ArrayList<>(edits.size());
+        Set<Integer> changedPages = new HashSet<>();
+        for (SequenceDiff.Edit edit : edits) {
+            List<TextLine> removed = originalLines.subList(edit.originalStart(), edit.originalEnd());
+            List<TextLine> added = modifiedLines.subList(edit.modifiedStart(), edit.modifiedEnd());
+            removed.forEach(line -> changedPages.add(line.page()));
+            added.forEach(line -> changedPages.add(line.page()));
+            changes.add(TextChange.builder()
+                    .operation(operation(edit))
+                    .original(removed.stream().map(TextDiffServiceImpl::lineSpan).toList())
+                    .modified(added.stream().map(TextDiffServiceImpl::lineSpan).toList())
+                    .words(edit.operation() == SequenceDiff.Operation.REPLACE ? wordChanges(removed, added, symbols) : null)
+                    .build());
+        }
+        for (int page = 0; page < pageCount; page++) {
+            listener.pageCompared(page, changedPages.contains(page + 1));
+        }
+        return changes;
+    }
+
+    /**
+     * Diffs the words of replaced lines, so a changed word is reported as such rather than as its whole line.
+     */
+    private static List<TextChange> wordChanges(List<TextLine> removed, List<TextLine> added, Map<String, Integer> symbols) {
+        List<TextSpan> originalWords = wordSpans(removed);
+        List<TextSpan> modifiedWords = wordSpans(added);
+        List<SequenceDiff.Edit> edits = SequenceDiff.diff(
+                intern(originalWords.stream().map(TextSpan::getText).toList(), symbols),
+                intern(modifiedWords.stream().map(TextSpan::getText).toList(), symbols),
+                MAX_EDITS);
+        return edits.stream()
+                .map(edit -> TextChange.builder()
+                        .operation(operation(edit))
+                        .original(originalWords.subList(edit.originalStart(), edit.originalEnd()))
+                        .modified(modifiedWords.subList(edit.modifiedStart(), edit.modifiedEnd()))
+                        .build())
+                .toList();
+    }
+
+    private static List<TextSpan> wordSpans(List<TextLine> lines) {
+        List<TextSpan> words = new ArrayList<>();
+        for (TextLine line : lines) {
+            for (int word = 0; word < line.words().length; word++) {
+                words.add(TextSpan.builder()
+                        .page(line.page())
+                        .text(line.words()[word])
+                        .box(line.wordBox(word))
+                        .build());
+            }
+        }
+        return words;
+    }
+
+    private static TextSpan lineSpan(TextLine line) {
+        return TextSpan.builder()
+                .page(line.page())
+                .text(line.text())
+                .box(line.box())
+                .build();
+    }
+
+    private static String operation(SequenceDiff.Edit edit) {
+        return edit.operation().name().toLowerCase(Locale.ROOT);
+    }
+
+    private static int[] intern(List<String> texts, Map<String, Integer> symbols) {
+        int[] ids = new int[texts.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = symbols.computeIfAbsent(texts.get(i), text -> symbols.size());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import org.apache.pdfbox.text.TextPosition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Uniform grid over text positions, keyed by page and by the position quantized to cells of one point, so that
+ * finding an equal position looks at a handful of candidates instead of every position of the document.
+ */
+class TextPositionIndex {
+
+    /**
+     * Page of positions that match on every page.
+     */
+    static final int ANY_PAGE = 0;
+
+    private static final float POSITION_TOLERANCE = 0.001f;
+    private static final float FONT_SIZE_TOLERANCE = 0.001f;
+    private static final float CELL_SIZE = 1f;
+
+    private final Map<Cell, List<TextPosition>> cells = new HashMap<>();
+    private boolean hasAnyPage;
+
+    /**
+     * @param page 1-based page number, or {@link #ANY_PAGE}
+     */
+    void add(int page, TextPosition textPosition) {
+        cells.computeIfAbsent(new Cell(page, cell(textPosition.getX()), cell(textPosition.getY())), key -> new ArrayList<>())
+                .add(textPosition);
+        hasAnyPage |= page == ANY_PAGE;
+    }
+
+    /**
+     * @param page 1-based page number of the position
+     * @return whether a position with the same text and font size is indexed within the tolerance of the position
+     */
+    boolean contains(int page, TextPosition textPosition) {
+        return containsOnPage(page, textPosition) || (hasAnyPage && containsOnPage(ANY_PAGE, textPosition));
+    }
+
+    private boolean containsOnPage(int page, TextPosition textPosition) {
+        float x = textPosition.getX();
+        float y = textPosition.getY();
+        // a position within the tolerance may be in a neighbouring cell
+        for (int cellX = cell(x - POSITION_TOLERANCE); cellX <= cell(x + POSITION_TOLERANCE); cellX++) {
+            for (int cellY = cell(y - POSITION_TOLERANCE); cellY <= cell(y + POSITION_TOLERANCE); cellY++) {
+                List<TextPosition> candidates = cells.get(new Cell(page, cellX, cellY));
+                if (Objects.isNull(candidates)) {
+                    continue;
+                }
+                for (TextPosition candidate : candidates) {
+                    if (areEqual(candidate, textPosition)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean areEqual(TextPosition textPosition1, TextPosition textPosition2) {
+        return textPosition1.getUnicode().equals(textPosition2.getUnicode())
+                && Math.abs(textPosition1.getFontSize() - textPosition2.getFontSize()) < FONT_SIZE_TOLERANCE
+                && Math.abs(textPosition1.getX() - textPosition2.getX()) < POSITION_TOLERANCE
+                && Math.abs(textPosition1.getY() - textPosition2.getY()) < POSITION_TOLERANCE;
+    }
+
+    private static int cell(float coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private record Cell(int page, int x, int y) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.ltimindtree.pdfcompare.text;
+
+import com.ltimindtree.pdfcompare.util.PageFingerprinter;
+import org.apache.fontbox.util.BoundingBox;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType3Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Extracts the glyphs of a document into a {@link GlyphStore} in a single pass of a {@link PDFTextStripper}. The text
+ * positions of a page are released once the page is stored.
+ * <p>
+ * Text of several code points and fonts get the same ids in every store of an extractor, so the documents of a
+ * comparison are extracted with one instance. A font id stands for a fingerprint of the font dictionary with its
+ * name, subtype, encoding and embedded font program; fonts of the same name share a {@link #fontFamily(int) family}.
+ * Not thread safe.
+ */
+public class GlyphExtractor {
+
+    private static final Pattern SUBSET_TAG = Pattern.compile("^[A-Z]{6}\\+");
+
+    private final Map<String, Integer> multiCodePointIds = new HashMap<>();
+    private final List<String> multiCodePoints = new ArrayList<>();
+    private final Map<ByteBuffer, Integer> fontIds = new HashMap<>();
+    private final List<Integer> fontFamilies = new ArrayList<>();
+    private final Map<String, Integer> fontFamilyIds = new HashMap<>();
+
+    /**
+     * @return id of the fonts with the same name as a font, ignoring the tag of a subset
+     */
+    public int fontFamily(int fontId) {
+        return fontFamilies.get(fontId);
+    }
+
+    /**
+     * Extracts the glyphs of the first {@code pageCount} pages of a document.
+     */
+    public GlyphStore extract(PDDocument document, int pageCount) throws IOException {
+        GlyphStore store = new GlyphStore(pageCount, multiCodePoints);
+        // fonts shared by many pages are fingerprinted once
+        PageFingerprinter fingerprinter = new PageFingerprinter();
+        Map<COSDictionary, Integer> documentFontIds = new IdentityHashMap<>();
+        PDFTextStripper stripper = new PDFTextStripper() {
+
+            private AffineTransform pageTransform;
+
+            @Override
+            protected void startPage(PDPage page) throws IOException {
+                pageTransform = pageTransform(page);
+                PDResources resources = page.getResources();
+                if (Objects.nonNull(resources)) {
+                    IntStream.Builder pageFonts = IntStream.builder();
+                    for (COSName name : resources.getFontNames()) {
+                        PDFont font = resources.getFont(name);
+                        if (Objects.nonNull(font)) {
+                            pageFonts.add(fontId(font, fingerprinter, documentFontIds));
+                        }
+                    }
+                    store.setPageFonts(getCurrentPageNo() - 1, pageFonts.build().sorted().distinct().toArray());
+                }
+            }
+
+            @Override
+            protected void writeString(String string, List<TextPosition> textPositions) throws IOException {
+                for (TextPosition text : textPositions) {
+                    store.add(symbol(text.getUnicode()),
+                            pageTransform.createTransformedShape(glyphShape(text)).getBounds2D(),
+                            fontId(text.getFont(), fingerprinter, documentFontIds));
+                }
+            }
+
+            @Override
+            protected void endPage(PDPage page) {
+                store.endPage(getCurrentPageNo() - 1);
+            }
+        };
+        stripper.setStartPage(1);
+        stripper.setEndPage(pageCount);
+        // only the glyphs are kept, the text itself is not needed
+        stripper.writeText(document, Writer.nullWriter());
+        store.endDocument();
+        return store;
+    }
+
+    private int fontId(PDFont font, PageFingerprinter fingerprinter, Map<COSDictionary, Integer> documentFontIds)
+            throws IOException {
+        Integer documentFontId = documentFontIds.get(font.getCOSObject());
+        if (Objects.nonNull(documentFontId)) {
+            return documentFontId;
+        }
+        ByteBuffer fingerprint = ByteBuffer.wrap(fingerprinter.fingerprint(font.getCOSObject()));
+        int fontId = fontIds.computeIfAbsent(fingerprint, key -> {
+            String name = font.getName();
+            String family = Objects.isNull(name) ? "#" + fontIds.size() : SUBSET_TAG.matcher(name).replaceFirst("");
+            fontFamilies.add(fontFamilyIds.computeIfAbsent(family, key2 -> fontFamilyIds.size()));
+            return fontFamilies.size() - 1;
+        });
+        documentFontIds.put(font.getCOSObject(), fontId);
+        return fontId;
+    }
+
+    private int symbol(String unicode) {
+        if (unicode.codePointCount(0, unicode.length()) == 1) {
+            return unicode.codePointAt(0);
+        }
+        return multiCodePointIds.computeIfAbsent(unicode, text -> {
+            multiCodePoints.add(text);
+            return -multiCodePoints.size();
+        });
+    }
+
+    /**
+     * Maps the text positions of a page to the displayed page, origin top left: turns the page by its rotation and
+     * flips the y-axis. The text stripper already moved the positions to the lower left corner of the crop box.
+     */
+    private static AffineTransform pageTransform(PDPage pdPage) {
+        PDRectangle cropBox = pdPage.getCropBox();
+        float width = cropBox.getWidth();
+        float height = cropBox.getHeight();
+        int rotation = ((pdPage.getRotation() % 360) + 360) % 360;
+
+        AffineTransform flipAT = new AffineTransform();
+        flipAT.translate(0, rotation == 90 || rotation == 270 ? width : height);
+        flipAT.scale(1, -1);
+        // page may be rotated
+        flipAT.concatenate(switch (rotation) {
+            case 90 -> new AffineTransform(0, -1, 1, 0, 0, width);
+            case 180 -> new AffineTransform(-1, 0, 0, -1, width, height);
+            case 270 -> new AffineTransform(0, 1, -1, 0, height, 0);
+            default -> new AffineTransform();
+        });
+        return flipAT;
+    }
+
+    /**
+     * Box of a glyph as the text stripper places it, in user space moved to the lower left corner of the crop box.
+     */
+    static Shape glyphShape(TextPosition text) throws IOException {
+        AffineTransform at = text.getTextMatrix().createAffineTransform();
+        PDFont font = text.getFont();
+        BoundingBox bbox = font.getBoundingBox();
+
+        float xAdvance = font.getWidth(text.getCharacterCodes()[0]); // todo: should iterate all chars
+        Rectangle2D.Float rect = new Rectangle2D.Float(0, bbox.getLowerLeftY(), xAdvance, bbox.getHeight());
+        if (font instanceof PDType3Font) {
+            // bbox and font matrix are unscaled
+            at.concatenate(font.getFontMatrix().createAffineTransform());
+        } else {
+            // bbox and font matrix are already scaled to 1000
+            at.scale(1 / 1000f, 1 / 1000f);
+        }
+        return at.createTransformedShape(rect);
+    }
+}
@@ -0,0 +1,147 @@
+package com.ltimindtree.pdfcompare.text;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The glyphs of a document in text order, stored column by column in primitive arrays instead of one
+ * {@link org.apache.pdfbox.text.TextPosition} per glyph. Filled by {@link GlyphExtractor}.
+ * <p>
+ * A glyph is identified by its index. Its symbol is the code point of its unicode text, or a negative id from the
+ * extractor for text of several code points such as ligatures, so two stores of the same extractor compare by symbol.
+ * Its box is in points on the displayed page, origin top left. Its font is an id of the extractor as well, see
+ * {@link GlyphExtractor#fontFamily(int)}.
+ */
+public final class GlyphStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final List<String> multiCodePoints;
+    private final int[] pageOffsets;
+    private final int[][] pageFonts;
+    private int size;
+    private int[] symbols = new int[INITIAL_CAPACITY];
+    private float[] x = new float[INITIAL_CAPACITY];
+    private float[] y = new float[INITIAL_CAPACITY];
+    private float[] width = new float[INITIAL_CAPACITY];
+    private float[] height = new float[INITIAL_CAPACITY];
+    private int[] fontIds = new int[INITIAL_CAPACITY];
+
+    GlyphStore(int pageCount, List<String> multiCodePoints) {
+        this.pageOffsets = new int[pageCount + 1];
+        // pages not ended yet
+        Arrays.fill(pageOffsets, 1, pageOffsets.length, -1);
+        this.pageFonts = new int[pageCount][];
+        Arrays.fill(pageFonts, new int[0]);
+        this.multiCodePoints = multiCodePoints;
+    }
+
+    public int getPageCount() {
+        return pageOffsets.length - 1;
+    }
+
+    /**
+     * @return index of the first glyph of a page, 0-based
+     */
+    public int pageStart(int page) {
+        return pageOffsets[page];
+    }
+
+    /**
+     * @return index after the last glyph of a page, 0-based
+     */
+    public int pageEnd(int page) {
+        return pageOffsets[page + 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int symbol(int glyph) {
+        return symbols[glyph];
+    }
+
+    /**
+     * @return the symbols of the glyphs of a page, 0-based
+     */
+    public int[] pageSymbols(int page) {
+        return Arrays.copyOfRange(symbols, pageStart(page), pageEnd(page));
+    }
+
+    public String unicode(int glyph) {
+        int symbol = symbols[glyph];
+        return symbol >= 0 ? Character.toString(symbol) : multiCodePoints.get(-symbol - 1);
+    }
+
+    public Rectangle2D bounds(int glyph) {
+        return new Rectangle2D.Float(x[glyph], y[glyph], width[glyph], height[glyph]);
+    }
+
+    public int fontId(int glyph) {
+        return fontIds[glyph];
+    }
+
+    /**
+     * @return the ids of the fonts in the resources of a page, sorted
+     */
+    public int[] pageFonts(int page) {
+        return pageFonts[page].clone();
+    }
+
+    /**
+     * Whether a page has the same fonts and the same glyphs in the same fonts in both stores, without looking at their
+     * positions. Both stores must come from the same extractor.
+     */
+    public boolean samePage(GlyphStore other, int page) {
+        int start = pageStart(page);
+        int end = pageEnd(page);
+        int otherStart = other.pageStart(page);
+        int otherEnd = other.pageEnd(page);
+        return Arrays.equals(pageFonts[page], other.pageFonts[page])
+                && Arrays.equals(symbols, start, end, other.symbols, otherStart, otherEnd)
+                && Arrays.equals(fontIds, start, end, other.fontIds, otherStart, otherEnd);
+    }
+
+    void setPageFonts(int page, int[] fontIds) {
+        pageFonts[page] = fontIds;
+    }
+
+    void add(int symbol, Rectangle2D bounds, int fontId) {
+        if (size == symbols.length) {
+            int capacity = size * 2;
+            symbols = Arrays.copyOf(symbols, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            width = Arrays.copyOf(width, capacity);
+            height = Arrays.copyOf(height, capacity);
+            fontIds = Arrays.copyOf(fontIds, capacity);
+        }
+        symbols[size] = symbol;
+        x[size] = (float) bounds.getX();
+        y[size] = (float) bounds.getY();
+        width[size] = (float) bounds.getWidth();
+        height[size] = (float) bounds.getHeight();
+        fontIds[size] = fontId;
+        size++;
+    }
+
+    /**
+     * Ends the glyphs of a page.
+     */
+    void endPage(int page) {
+        pageOffsets[page + 1] = size;
+    }
+
+    /**
+     * Ends the pages never ended, which are the pages without content, once all pages are extracted.
+     */
+    void endDocument() {
+        for (int page = 1; page < pageOffsets.length; page++) {
+            if (pageOffsets[page] < 0) {
+                pageOffsets[page] = pageOffsets[page - 1];
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ltimindtree.pdfcompare.text;
+
+import com.ltimindtree.pdfcompare.util.PdfDocumentLoader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams the text of a document to a writer a chunk of pages at a time, each page ended by a form feed so that readers
+ * such as {@link com.ltimindtree.pdfcompare.diff.StreamingWordDiff} know the page of every word.
+ * <p>
+ * The document is loaded again for every chunk: PDFBox keeps the objects it parsed for as long as the document is open,
+ * so the heap holds the objects of one chunk however many pages the document has.
+ */
+public final class PageTextWriter {
+
+    public static final char PAGE_END = '\f';
+    static final int PAGES_PER_CHUNK = 100;
+
+    private PageTextWriter() {
+    }
+
+    /**
+     * @return the number of pages written
+     */
+    public static int write(File pdfFile, Writer out, PdfDocumentLoader loader) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setPageEnd(String.valueOf(PAGE_END));
+        int pageCount = Integer.MAX_VALUE;
+        int start = 1;
+        while (start <= pageCount) {
+            try (PDDocument document = loader.load(pdfFile)) {
+                pageCount = document.getNumberOfPages();
+                stripper.setStartPage(start);
+                stripper.setEndPage(start + PAGES_PER_CHUNK - 1);
+                stripper.writeText(document, out);
+            }
+            out.flush();
+            start += PAGES_PER_CHUNK;
+        }
+        return pageCount;
+    }
+}
@@ -0,0 +1,133 @@
+package com.ltimindtree.pdfcompare.text;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Extracts the lines of a document as the words they are made of, with a box in user space for each word. Only the
+ * text machinery of PDFBox is used, nothing is rendered.
+ */
+public final class TextLineExtractor {
+
+    /**
+     * A line of a page.
+     *
+     * @param page  page number, starting at 1
+     * @param words the words of the line, never empty
+     * @param boxes the box of each word in user space, {@code [llx, lly, urx, ury]} one after the other
+     */
+    public record TextLine(int page, String[] words, float[] boxes) {
+
+        public String text() {
+            return String.join(" ", words);
+        }
+
+        public float[] wordBox(int word) {
+            return Arrays.copyOfRange(boxes, word * 4, word * 4 + 4);
+        }
+
+        public float[] box() {
+            float[] box = wordBox(0);
+            for (int word = 1; word < words.length; word++) {
+                box[0] = Math.min(box[0], boxes[word * 4]);
+                box[1] = Math.min(box[1], boxes[word * 4 + 1]);
+                box[2] = Math.max(box[2], boxes[word * 4 + 2]);
+                box[3] = Math.max(box[3], boxes[word * 4 + 3]);
+            }
+            return box;
+        }
+    }
+
+    private TextLineExtractor() {
+    }
+
+    public static List<TextLine> extract(PDDocument document) throws IOException {
+        List<TextLine> lines = new ArrayList<>();
+        PDFTextStripper stripper = new PDFTextStripper() {
+
+            private final List<String> words = new ArrayList<>();
+            private final StringBuilder word = new StringBuilder();
+            private float[] boxes = new float[64];
+            private Rectangle2D wordBox;
+            private PDRectangle cropBox;
+
+            @Override
+            protected void startPage(PDPage page) {
+                cropBox = page.getCropBox();
+            }
+
+            @Override
+            protected void writeString(String string, List<TextPosition> textPositions) throws IOException {
+                for (TextPosition text : textPositions) {
+                    String unicode = text.getUnicode();
+                    if (unicode.isBlank()) {
+                        endWord();
+                        continue;
+                    }
+                    word.append(unicode);
+                    Rectangle2D glyph = GlyphExtractor.glyphShape(text).getBounds2D();
+                    if (Objects.isNull(wordBox)) {
+                        wordBox = glyph;
+                    } else {
+                        wordBox.add(glyph);
+                    }
+                }
+            }
+
+            @Override
+            protected void writeWordSeparator() {
+                endWord();
+            }
+
+            @Override
+            protected void writeLineSeparator() {
+                endLine();
+            }
+
+            @Override
+            protected void endPage(PDPage page) {
+                endLine();
+            }
+
+            private void endWord() {
+                if (word.isEmpty()) {
+                    return;
+                }
+                int offset = words.size() * 4;
+                if (offset + 4 > boxes.length) {
+                    boxes = Arrays.copyOf(boxes, boxes.length * 2);
+                }
+                // the stripper places the glyphs relative to the crop box
+                boxes[offset] = (float) wordBox.getMinX() + cropBox.getLowerLeftX();
+                boxes[offset + 1] = (float) wordBox.getMinY() + cropBox.getLowerLeftY();
+                boxes[offset + 2] = (float) wordBox.getMaxX() + cropBox.getLowerLeftX();
+                boxes[offset + 3] = (float) wordBox.getMaxY() + cropBox.getLowerLeftY();
+                words.add(word.toString());
+                word.setLength(0);
+                wordBox = null;
+            }
+
+            private void endLine() {
+                endWord();
+                if (!words.isEmpty()) {
+                    lines.add(new TextLine(getCurrentPageNo(), words.toArray(String[]::new),
+                            Arrays.copyOf(boxes, words.size() * 4)));
+                    words.clear();
+                }
+            }
+        };
+        stripper.writeText(document, Writer.nullWriter());
+        return lines;
+    }
+}
@@ -0,0 +1,95 @@
+package com.ltimindtree.pdfcompare.util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public final class Images {
+
+    private Images() {
+    }
+
+    /**
+     * Deep copy with the same image type, for drawing on a page that may be shared through the page cache.
+     */
+    public static BufferedImage copyOf(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        return new BufferedImage(colorModel, image.copyData(null), colorModel.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * White image of the same size and type, standing in for a page the other document does not have.
+     */
+    public static BufferedImage blankLike(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        BufferedImage blank = new BufferedImage(colorModel,
+                colorModel.createCompatibleWritableRaster(image.getWidth(), image.getHeight()),
+                colorModel.isAlphaPremultiplied(), null);
+        Graphics2D graphics = blank.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        } finally {
+            graphics.dispose();
+        }
+        return blank;
+    }
+
+    /**
+     * SHA-256 of the type, size and pixels of the image; images with the same digest encode to the same PDF image.
+     */
+    public static byte[] sha256(BufferedImage image) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        buffer.putInt(image.getType()).putInt(image.getWidth()).putInt(image.getHeight());
+
+        WritableRaster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        boolean wholeBuffer = raster.getParent() == null && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0 && dataBuffer.getNumBanks() == 1 && dataBuffer.getOffset() == 0;
+        if (wholeBuffer && dataBuffer instanceof DataBufferByte bytes) {
+            buffer.flip();
+            digest.update(buffer);
+            digest.update(bytes.getData());
+            return digest.digest();
+        }
+        if (wholeBuffer && dataBuffer instanceof DataBufferInt ints) {
+            for (int pixel : ints.getData()) {
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+                buffer.putInt(pixel);
+            }
+        } else {
+            int[] row = new int[image.getWidth()];
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRGB(0, y, row.length, 1, row, 0, row.length);
+                for (int pixel : row) {
+                    if (!buffer.hasRemaining()) {
+                        buffer.flip();
+                        digest.update(buffer);
+                        buffer.clear();
+                    }
+                    buffer.putInt(pixel);
+                }
+            }
+        }
+        buffer.flip();
+        digest.update(buffer);
+        return digest.digest();
+    }
+}
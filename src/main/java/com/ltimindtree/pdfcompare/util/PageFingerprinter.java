@@ -0,0 +1,187 @@
+package com.ltimindtree.pdfcompare.util;
+
+import org.apache.pdfbox.cos.*;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Computes a canonical SHA-256 hash of everything that determines how a page renders: the decoded content stream,
+ * the resources it references (fonts, XObjects, color spaces, images, ...), annotations, the page boxes and rotation.
+ * Pages with the same fingerprint render identically, so they need not be rendered to be compared.
+ * <p>
+ * Digests of indirect objects are memoized, so resources shared by many pages are hashed once per document. An
+ * instance must only be used with a single document.
+ */
+public class PageFingerprinter {
+
+    private static final Set<COSName> IGNORED_KEYS = Set.of(COSName.P, COSName.PARENT, COSName.LENGTH);
+
+    private final Map<COSBase, byte[]> digests = new IdentityHashMap<>();
+    private final Set<COSBase> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Fingerprints the first {@code pageCount} pages of a document.
+     */
+    public static List<byte[]> fingerprints(PDDocument document, int pageCount) throws IOException {
+        PageFingerprinter fingerprinter = new PageFingerprinter();
+        List<byte[]> fingerprints = new ArrayList<>(pageCount);
+        for (int page = 0; page < pageCount; page++) {
+            fingerprints.add(fingerprinter.fingerprint(document.getPage(page)));
+        }
+        return fingerprints;
+    }
+
+    public byte[] fingerprint(PDPage page) throws IOException {
+        MessageDigest digest = newDigest();
+        updateInt(digest, page.getRotation());
+        updateRectangle(digest, page.getMediaBox());
+        updateRectangle(digest, page.getCropBox());
+
+        // content stream bytes are hashed decoded, so a different compression of the same operators still matches
+        digest.update((byte) 'C');
+        try (InputStream contents = page.getContents()) {
+            updateStream(digest, contents);
+        }
+
+        PDResources resources = page.getResources();
+        update(digest, resources == null ? null : resources.getCOSObject());
+        update(digest, page.getCOSObject().getItem(COSName.ANNOTS));
+        update(digest, page.getCOSObject().getItem(COSName.GROUP));
+        return digest.digest();
+    }
+
+    /**
+     * Fingerprints a single resource, such as a font dictionary, together with everything it references.
+     */
+    public byte[] fingerprint(COSBase resource) throws IOException {
+        return digestOf(resource).clone();
+    }
+
+    private void update(MessageDigest digest, COSBase base) throws IOException {
+        if (base instanceof COSObject object) {
+            digest.update((byte) 'R');
+            digest.update(digestOf(object.getObject()));
+        } else if (base == null || base instanceof COSNull) {
+            digest.update((byte) 'N');
+        } else if (base instanceof COSBoolean bool) {
+            digest.update((byte) (bool.getValue() ? 'T' : 'F'));
+        } else if (base instanceof COSInteger integer) {
+            digest.update((byte) 'I');
+            updateLong(digest, integer.longValue());
+        } else if (base instanceof COSFloat number) {
+            digest.update((byte) 'D');
+            updateInt(digest, Float.floatToIntBits(number.floatValue()));
+        } else if (base instanceof COSName name) {
+            digest.update((byte) '/');
+            updateBytes(digest, name.getName().getBytes(StandardCharsets.UTF_8));
+        } else if (base instanceof COSString string) {
+            digest.update((byte) 'S');
+            updateBytes(digest, string.getBytes());
+        } else if (base instanceof COSArray array) {
+            digest.update((byte) 'A');
+            updateInt(digest, array.size());
+            for (int i = 0; i < array.size(); i++) {
+                update(digest, array.get(i));
+            }
+        } else if (base instanceof COSStream stream) {
+            // resource streams are hashed encoded together with their filters, decoding images just to hash them
+            // would cost as much as rendering
+            updateDictionary(digest, stream);
+            digest.update((byte) 'B');
+            try (InputStream data = stream.createRawInputStream()) {
+                updateStream(digest, data);
+            }
+        } else if (base instanceof COSDictionary dictionary) {
+            updateDictionary(digest, dictionary);
+        } else {
+            digest.update((byte) '?');
+            updateBytes(digest, base.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private byte[] digestOf(COSBase base) throws IOException {
+        if (base == null) {
+            return new byte[]{'N'};
+        }
+        byte[] cached = digests.get(base);
+        if (cached != null) {
+            return cached;
+        }
+        if (!inProgress.add(base)) {
+            // reference cycle, the object is already being hashed further up
+            return new byte[]{'O'};
+        }
+        try {
+            MessageDigest digest = newDigest();
+            update(digest, base);
+            byte[] result = digest.digest();
+            digests.put(base, result);
+            return result;
+        } finally {
+            inProgress.remove(base);
+        }
+    }
+
+    private void updateDictionary(MessageDigest digest, COSDictionary dictionary) throws IOException {
+        List<COSName> keys = new ArrayList<>(dictionary.keySet());
+        keys.removeAll(IGNORED_KEYS);
+        keys.sort(Comparator.comparing(COSName::getName));
+
+        digest.update((byte) 'M');
+        updateInt(digest, keys.size());
+        for (COSName key : keys) {
+            updateBytes(digest, key.getName().getBytes(StandardCharsets.UTF_8));
+            update(digest, dictionary.getItem(key));
+        }
+    }
+
+    private static void updateRectangle(MessageDigest digest, PDRectangle rectangle) {
+        digest.update((byte) 'Q');
+        updateInt(digest, Float.floatToIntBits(rectangle.getLowerLeftX()));
+        updateInt(digest, Float.floatToIntBits(rectangle.getLowerLeftY()));
+        updateInt(digest, Float.floatToIntBits(rectangle.getUpperRightX()));
+        updateInt(digest, Float.floatToIntBits(rectangle.getUpperRightY()));
+    }
+
+    private static void updateStream(MessageDigest digest, InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        long length = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            length += read;
+        }
+        updateLong(digest, length);
+    }
+
+    private static void updateBytes(MessageDigest digest, byte[] bytes) {
+        updateInt(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void updateInt(MessageDigest digest, int value) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value).array());
+    }
+
+    private static void updateLong(MessageDigest digest, long value) {
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(value).array());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.ltimindtree.pdfcompare.util;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Loads documents for reading without copying them into the heap. The file is read in place, memory mapped or through
+ * a small buffer, and streams PDFBox needs to cache while parsing go to scratch files.
+ */
+public class PdfDocumentLoader {
+
+    private final boolean memoryMapped;
+
+    /**
+     * @param memoryMapped map files into memory, files of 2 GB and more are always read buffered
+     */
+    public PdfDocumentLoader(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    public PDDocument load(File file) throws IOException {
+        RandomAccessRead source = memoryMapped && file.length() < Integer.MAX_VALUE
+                ? new RandomAccessReadMemoryMappedFile(file)
+                : new RandomAccessReadBufferedFile(file);
+        try {
+            // the document closes the source
+            return Loader.loadPDF(source, IOUtils.createTempFileOnlyStreamCache());
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+}
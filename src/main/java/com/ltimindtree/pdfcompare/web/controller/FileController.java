@@ -1,30 +1,31 @@
 package com.ltimindtree.pdfcompare.web.controller;
 
-import com.ltimindtree.pdfcompare.ComparePDFText;
-import com.ltimindtree.pdfcompare.service.FileService;
-import com.ltimindtree.pdfcompare.service.PdfUtilityService;
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.*;
 import com.ltimindtree.pdfcompare.util.TrackExecutionTime;
+import com.ltimindtree.pdfcompare.web.dto.JobStatusResponse;
 import com.ltimindtree.pdfcompare.web.dto.MyResponse;
-import jakarta.websocket.server.PathParam;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -32,190 +33,185 @@ import java.util.*;
 @RequestMapping("/api/files")
 public class FileController {
 
-    private final PdfUtilityService pdfUtilityService;
+    private final ComparisonJobService comparisonJobService;
     private final FileService fileService;
+    private final ColorMode defaultColorMode;
+    private final DiffFormat defaultDiffFormat;
+    private final ExecutorService eventExecutor;
 
-    public FileController(PdfUtilityService pdfUtilityService, FileService fileService) {
-        this.pdfUtilityService = pdfUtilityService;
+    public FileController(ComparisonJobService comparisonJobService, FileService fileService, PdfCompareProperties properties) {
+        this.comparisonJobService = comparisonJobService;
         this.fileService = fileService;
+        this.defaultColorMode = properties.getImage().getColorMode();
+        this.defaultDiffFormat = properties.getImage().getDiffFormat();
+        this.eventExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getJobs().getEventPoolSize()),
+                new CustomizableThreadFactory("pdf-job-events-"));
     }
 
+    /**
+     * Compares the uploaded pairs and answers once all are compared. The comparison runs as a job on the job pool, the
+     * request thread is released while it runs.
+     */
     @TrackExecutionTime
     @RequestMapping(
             value = "/compare",
             method = RequestMethod.POST,
             consumes = "multipart/form-data"
     )
-    public ResponseEntity<List<MyResponse>> comparePdfFiles(
+    public CompletableFuture<ResponseEntity<List<MyResponse>>> comparePdfFiles(
             @RequestParam("originalFiles") List<MultipartFile> originalFiles,
             @RequestParam("modifiedFiles") List<MultipartFile> modifiedFiles,
-            @PathParam("type") Optional<String> typeOpt
+            @RequestParam(value = "type", defaultValue = "image") String comparisonType,
+            @RequestParam(value = "colorMode", required = false) String colorModeParam,
+            @RequestParam(value = "format", required = false) String formatParam
     ) {
-        List<MyResponse> responses = new ArrayList<>();
-        if (typeOpt.isEmpty()) typeOpt = Optional.of("image");
+        ComparisonJob job = submitJob(originalFiles, modifiedFiles, comparisonType, colorModeParam, formatParam);
+        return job.getCompletion().thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Queues the comparison of the uploaded pairs and answers at once with the id of the job.
+     */
+    @PostMapping(value = "/jobs", consumes = "multipart/form-data")
+    public ResponseEntity<JobStatusResponse> submitComparisonJob(
+            @RequestParam("originalFiles") List<MultipartFile> originalFiles,
+            @RequestParam("modifiedFiles") List<MultipartFile> modifiedFiles,
+            @RequestParam(value = "type", defaultValue = "image") String comparisonType,
+            @RequestParam(value = "colorMode", required = false) String colorModeParam,
+            @RequestParam(value = "format", required = false) String formatParam
+    ) {
+        ComparisonJob job = submitJob(originalFiles, modifiedFiles, comparisonType, colorModeParam, formatParam);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/files/jobs/" + job.getId()))
+                .body(toStatus(job));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<JobStatusResponse> getJobStatus(@PathVariable("jobId") String jobId) {
+        return ResponseEntity.ok(toStatus(findJob(jobId)));
+    }
+
+    /**
+     * The responses of a completed job; {@code 202} with the status while it runs, {@code 500} when it failed.
+     */
+    @GetMapping("/jobs/{jobId}/result")
+    public ResponseEntity<?> getJobResult(@PathVariable("jobId") String jobId) {
+        ComparisonJob job = findJob(jobId);
+        return switch (job.getState()) {
+            case COMPLETED -> ResponseEntity.ok(job.getResults());
+            case FAILED -> ResponseEntity.internalServerError().body(toStatus(job));
+            default -> ResponseEntity.accepted().body(toStatus(job));
+        };
+    }
+
+    /**
+     * Streams the status of the job as {@code progress} events while pages are rendered, compared and written, then a
+     * final {@code completed} or {@code failed} event.
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJobEvents(@PathVariable("jobId") String jobId) {
+        ComparisonJob job = findJob(jobId);
+        SseEmitter emitter = new SseEmitter();
+        new JobEventStream(job, emitter, eventExecutor, FileController::toStatus).start();
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        eventExecutor.shutdownNow();
+    }
+
+    private ComparisonJob submitJob(List<MultipartFile> originalFiles, List<MultipartFile> modifiedFiles,
+                                    String comparisonType, String colorModeParam, String formatParam) {
+        ColorMode colorMode;
+        DiffFormat diffFormat;
+        try {
+            colorMode = Objects.isNull(colorModeParam) ? defaultColorMode : ColorMode.of(colorModeParam);
+            diffFormat = Objects.isNull(formatParam) ? defaultDiffFormat : DiffFormat.of(formatParam);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        // modified files by name, the first of a name wins
+        Map<String, MultipartFile> modifiedFilesByName = new HashMap<>();
+        for (MultipartFile modified : modifiedFiles) {
+            modifiedFilesByName.putIfAbsent(modified.getOriginalFilename(), modified);
+        }
+
+        List<ComparisonPair> pairs = new ArrayList<>(originalFiles.size());
         for (MultipartFile original : originalFiles) {
+            MultipartFile modified = originalFiles.size() == 1
+                    ? modifiedFiles.get(0)
+                    : modifiedFilesByName.get(original.getOriginalFilename());
+            // an original without modified file, or whose upload fails, fails on its own, not the whole batch
             try {
-                String modifiedFilePath;
                 String originalFilePath = fileService.uploadFile(original, "original");
-                if (originalFiles.size() == 1) {
-                    modifiedFilePath = fileService.uploadFile(
-                            modifiedFiles.get(0),
-                            "modified"
-                    );
-                } else {
-                    Optional<MultipartFile> optionalMultipartFile = modifiedFiles
-                            .stream()
-                            .filter(multipartFile -> Objects.equals(multipartFile.getOriginalFilename(), original.getOriginalFilename()))
-                            .findFirst();
-                    if (optionalMultipartFile.isPresent()) {
-                        modifiedFilePath = fileService.uploadFile(
-                                optionalMultipartFile.get(),
-                                "modified"
-                        );
-                    } else {
-                        throw new IllegalArgumentException("No modified file present with name " + original.getOriginalFilename());
-                    }
-                }
-
-                String comparisonType = typeOpt.get();
-
-                switch (comparisonType) {
-                    case "image" -> {
-                        // Convert PDF files to images
-                        File originalFile = new File(originalFilePath);
-                        Map<Integer, BufferedImage> originalBufferedImagesMap = pdfUtilityService.convertPDFToImage(originalFile);
-                        File modifiedFile = new File(modifiedFilePath);
-                        Map<Integer, BufferedImage> modifiedBufferedImagesMap = pdfUtilityService.convertPDFToImage(modifiedFile);
-
-                        Map<Integer, List<BufferedImage>> diffImagesMap = pdfUtilityService.comparePDFs(
-                                originalBufferedImagesMap,
-                                modifiedBufferedImagesMap
-                        );
-
-                        if (diffImagesMap.isEmpty()) {
-                            responses.add(
-                                    MyResponse.builder()
-                                            .displayName(original.getOriginalFilename())
-                                            .filename("")
-                                            .isDiff(false)
-                                            .message("Files are identical.")
-                                            .build()
-                            );
-                        } else {
-                            String filename = originalFile.getName();
-                            String diffPdfPath = pdfUtilityService.createDiffPdf(originalBufferedImagesMap, diffImagesMap, filename.substring(0, filename.lastIndexOf('.')));
-
-                            // file response
-                            responses.add(
-                                    MyResponse.builder()
-                                            .displayName(original.getOriginalFilename())
-                                            .filename(filename)
-                                            .url(diffPdfPath)
-                                            .isDiff(true)
-                                            .message("Files are not identical.")
-                                            .build()
-                            );
-                        }
-                    }
-                    case "font" -> {
-                        // Load the first PDF document
-                        try (PDDocument document = new PDDocument()) {
-                            ComparePDFText comparePDFText = new ComparePDFText();
-                            Map<Integer, List<BufferedImage>> diffImagesMap = comparePDFText.compareFontOrText(
-                                    originalFilePath, modifiedFilePath, true
-                            );
-                            createDifferencePdfFile(
-                                    responses, original, originalFilePath, document, diffImagesMap
-                            );
-                        } catch (Exception e) {
-                            log.error(e.getMessage(), e);
-                        }
-                    }
-                    case "text" -> {
-                        // Load the first PDF document
-                        try (PDDocument document = new PDDocument()) {
-                            ComparePDFText comparePDFText = new ComparePDFText();
-                            Map<Integer, List<BufferedImage>> diffImagesMap = comparePDFText.compareFontOrText(
-                                    originalFilePath, modifiedFilePath, false
-                            );
-                            createDifferencePdfFile(
-                                    responses, original, originalFilePath, document, diffImagesMap
-                            );
-                        } catch (Exception e) {
-                            log.error(e.getMessage(), e);
-                        }
-                    }
-                    default -> throw new RuntimeException("Method not supported");
-                }
+                File modifiedFile = Objects.isNull(modified)
+                        ? null
+                        : new File(fileService.uploadFile(modified, "modified"));
+                pairs.add(new ComparisonPair(new File(originalFilePath), modifiedFile, original.getOriginalFilename()));
             } catch (Exception ex) {
-                throw new RuntimeException(ex);
+                log.error("Upload of {} failed", original.getOriginalFilename(), ex);
+                pairs.add(ComparisonPair.failed(original.getOriginalFilename(),
+                        "Upload failed: " + Objects.requireNonNullElse(ex.getMessage(), ex.getClass().getSimpleName())));
             }
         }
-        return ResponseEntity.ok(responses);
+        try {
+            return comparisonJobService.submit(pairs, comparisonType, colorMode, diffFormat);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many comparisons queued, retry later", e);
+        }
     }
 
-    private void createDifferencePdfFile(List<MyResponse> responses, MultipartFile original, String originalFilePath, PDDocument document, Map<Integer, List<BufferedImage>> diffImagesMap) throws Exception {
-        if (diffImagesMap.isEmpty()) {
-            responses.add(
-                    MyResponse.builder()
-                            .displayName(original.getOriginalFilename())
-                            .filename("")
-                            .isDiff(false)
-                            .message("Files are identical.")
-                            .build()
-            );
-        } else {
-            diffImagesMap.forEach((key, diffImages) -> {
-                // Calculate the width and height of the page
-                BufferedImage image1 = diffImages.get(0);
-                BufferedImage image2 = diffImages.get(1);
-
-                float pageWidth = Math.addExact(image1.getWidth(), image2.getWidth());
-                float pageHeight = Math.max(image1.getHeight(), image2.getHeight());
-
-                // Create a new page
-                PDPage page = new PDPage(new PDRectangle(pageWidth, pageHeight));
-                document.addPage(page);
-
-                // Create a content stream for the page
-                PDPageContentStream contentStream;
-                try {
-                    contentStream = new PDPageContentStream(document, page);
-                    // Draw the first image on the left side
-                    contentStream.drawImage(LosslessFactory.createFromImage(document, image1), 0, 0, image1.getWidth(), image1.getHeight());
-
-                    // Draw the second image next to the first one
-                    contentStream.drawImage(LosslessFactory.createFromImage(document, image2), image1.getWidth(), 0, image2.getWidth(), image2.getHeight());
-
-                    // Close the content stream
-                    contentStream.close();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-            String filename = new File(originalFilePath).getName();
-            String filenameWithoutExtension = filename.substring(0, filename.lastIndexOf('.'));
-            String diffPdfPath = fileService.saveFile(document, "diff", filenameWithoutExtension);
-            // file response
-            responses.add(
-                    MyResponse.builder()
-                            .displayName(original.getOriginalFilename())
-                            .filename(filename)
-                            .url(diffPdfPath)
-                            .isDiff(true)
-                            .message("Files are not identical.")
-                            .build()
-            );
-        }
+    private ComparisonJob findJob(String jobId) {
+        return comparisonJobService.find(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No job " + jobId));
     }
 
+    private static JobStatusResponse toStatus(ComparisonJob job) {
+        return JobStatusResponse.builder()
+                .jobId(job.getId())
+                .state(job.getState().name())
+                .pairs(job.getPairCount())
+                .pairsCompleted(job.getPairsCompleted())
+                .pagesTotal(job.getPagesTotal())
+                .pagesRendered(job.getPagesRendered())
+                .pagesCompared(job.getPagesCompared())
+                .pagesWritten(job.getPagesWritten())
+                .error(job.getError())
+                .results(job.getResults())
+                .build();
+    }
+
+    /**
+     * Streams a diff PDF. Range requests are answered with the requested parts of the file, and repeat downloads of an
+     * unchanged file get a 304.
+     */
     @GetMapping
-    public ResponseEntity<byte[]> getFile(@PathParam("filename") String filename) throws IOException {
-        Path filePath = fileService.getFile(filename).toPath();
+    public ResponseEntity<Resource> getFile(@RequestParam("filename") String filename) {
+        if (filename.contains("/") || filename.contains("\\") || filename.contains("..")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid file name");
+        }
+        File file = fileService.getFile(filename);
+        if (!file.isFile()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No file " + filename);
+        }
         // Set headers for the file response
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("diffFile", filePath.toFile().getName());
-        return new ResponseEntity<>(Files.readAllBytes(filePath), headers, HttpStatus.OK);
+        headers.setContentDispositionFormData("diffFile", file.getName());
+        // the conditional GET and the byte ranges are handled by Spring for resource bodies
+        return ResponseEntity.ok()
+                .headers(headers)
+                .eTag(eTag(file))
+                .lastModified(file.lastModified())
+                .body(new FileSystemResource(file));
+    }
+
+    /**
+     * Weak validator from the size and modification time, a diff file is written once and never changes in place, so
+     * nothing needs to be read to answer a conditional GET.
+     */
+    private static String eTag(File file) {
+        return "W/\"" + Long.toHexString(file.length()) + '-' + Long.toHexString(file.lastModified()) + '"';
     }
 }
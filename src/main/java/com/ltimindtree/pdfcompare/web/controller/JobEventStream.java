@@ -0,0 +1,92 @@
+package com.ltimindtree.pdfcompare.web.controller;
+
+import com.ltimindtree.pdfcompare.service.ComparisonJob;
+import com.ltimindtree.pdfcompare.web.dto.JobStatusResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Sends the status of a job to one SSE client. Changes only schedule a send on the event executor, so the threads of
+ * the comparison never wait for the client; changes made while a send is pending or running are coalesced into the next
+ * send, which always carries the latest status. The final event completes the emitter.
+ */
+@Slf4j
+class JobEventStream implements Consumer<ComparisonJob> {
+
+    private final ComparisonJob job;
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final Function<ComparisonJob, JobStatusResponse> toStatus;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private boolean closed;
+
+    JobEventStream(ComparisonJob job, SseEmitter emitter, Executor executor,
+                   Function<ComparisonJob, JobStatusResponse> toStatus) {
+        this.job = job;
+        this.emitter = emitter;
+        this.executor = executor;
+        this.toStatus = toStatus;
+    }
+
+    /**
+     * Starts streaming: watches the job and sends its current status. A change between the two is sent as well, since
+     * every send reads the status anew.
+     */
+    void start() {
+        job.watch(this);
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(throwable -> close());
+        accept(job);
+    }
+
+    @Override
+    public void accept(ComparisonJob changedJob) {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::send);
+            } catch (RejectedExecutionException e) {
+                emitter.completeWithError(e);
+                close();
+            }
+        }
+    }
+
+    private synchronized void send() {
+        // cleared first, a change from now on schedules another send
+        scheduled.set(false);
+        if (closed) {
+            return;
+        }
+        boolean done = job.isDone();
+        String eventName = switch (job.getState()) {
+            case COMPLETED -> "completed";
+            case FAILED -> "failed";
+            default -> "progress";
+        };
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(toStatus.apply(job), MediaType.APPLICATION_JSON));
+            if (done) {
+                emitter.complete();
+                close();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client went away or the emitter timed out
+            log.debug("Stopped streaming events of job {}", job.getId(), e);
+            close();
+        }
+    }
+
+    private synchronized void close() {
+        closed = true;
+        job.unwatch(this);
+    }
+}
@@ -0,0 +1,23 @@
+package com.ltimindtree.pdfcompare.web.dto;
+
+import lombok.*;
+
+/**
+ * Run-length encoded grid of the differing cells of a page. The grid covers the page as it is displayed, rotation
+ * applied, row by row from the top left; {@code runs} alternate between unchanged and changed cells, starting with
+ * unchanged, and the cells after the last run are unchanged.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DiffMask {
+    private int columns;
+    private int rows;
+    /**
+     * Edge length of a cell in points.
+     */
+    private float cellSize;
+    private int[] runs;
+}
@@ -0,0 +1,22 @@
+package com.ltimindtree.pdfcompare.web.dto;
+
+import lombok.*;
+
+/**
+ * A differing region of a page in PDF user space, origin bottom left, in points.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DiffRegion {
+    private float x;
+    private float y;
+    private float width;
+    private float height;
+    /**
+     * The region of the modified page at low resolution, as a {@code data:image/png;base64} URL.
+     */
+    private String thumbnail;
+}
@@ -0,0 +1,23 @@
+package com.ltimindtree.pdfcompare.web.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class JobStatusResponse {
+    private String jobId;
+    private String state;
+    private int pairs;
+    private int pairsCompleted;
+    private int pagesTotal;
+    private int pagesRendered;
+    private int pagesCompared;
+    private int pagesWritten;
+    private String error;
+    private List<MyResponse> results;
+}
@@ -1,16 +1,30 @@
 package com.ltimindtree.pdfcompare.web.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
+import java.util.List;
+
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class MyResponse {
     private String displayName;
     private String filename;
     private boolean isDiff;
     private String message;
     private String url;
+    private String error;
+    /**
+     * The differing pages when the {@code manifest} format was asked for, instead of a diff PDF.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<PageDiff> pages;
+    /**
+     * The changed lines for the {@code textdiff} comparison, which writes no diff PDF.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<TextChange> changes;
 }
\ No newline at end of file
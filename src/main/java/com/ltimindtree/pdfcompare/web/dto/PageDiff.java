@@ -0,0 +1,31 @@
+package com.ltimindtree.pdfcompare.web.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Where a page differs, for clients drawing their own overlay instead of downloading a diff PDF.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PageDiff {
+    /**
+     * Page number, starting at 1.
+     */
+    private int page;
+    /**
+     * Crop box of the modified page in user space, {@code [llx, lly, urx, ury]}. The regions, crop box and rotation of
+     * a page the modified document does not have are those of the original page.
+     */
+    private float[] cropBox;
+    /**
+     * Clockwise rotation of the modified page when displayed, in degrees.
+     */
+    private int rotation;
+    private List<DiffRegion> regions;
+    private DiffMask mask;
+}
@@ -0,0 +1,35 @@
+package com.ltimindtree.pdfcompare.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A run of lines, or of words within replaced lines, inserted, deleted or replaced between the original and the
+ * modified document.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TextChange {
+    /**
+     * {@code insert}, {@code delete} or {@code replace}.
+     */
+    private String operation;
+    /**
+     * The lines or words of the original document, empty for an insert.
+     */
+    private List<TextSpan> original;
+    /**
+     * The lines or words of the modified document, empty for a delete.
+     */
+    private List<TextSpan> modified;
+    /**
+     * The changed words of replaced lines.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<TextChange> words;
+}
@@ -0,0 +1,23 @@
+package com.ltimindtree.pdfcompare.web.dto;
+
+import lombok.*;
+
+/**
+ * A line or word of a document with where it is.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TextSpan {
+    /**
+     * Page number, starting at 1.
+     */
+    private int page;
+    private String text;
+    /**
+     * Bounding box in user space, {@code [llx, lly, urx, ury]}.
+     */
+    private float[] box;
+}
@@ -0,0 +1,99 @@
+package com.ltimindtree.pdfcompare;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.service.impl.ComparisonSchedulerImpl;
+import com.ltimindtree.pdfcompare.service.impl.PageRenderServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ComparePDFTextTest {
+
+    private static final String LIBERATION_SANS = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    @TempDir
+    Path tempDir;
+
+    private final PageRenderServiceImpl pageRenderService = new PageRenderServiceImpl(new PdfCompareProperties());
+    private final ComparisonSchedulerImpl comparisonScheduler =
+            new ComparisonSchedulerImpl(new PdfCompareProperties(), new SimpleMeterRegistry());
+
+    @AfterEach
+    void shutdown() {
+        pageRenderService.shutdown();
+        comparisonScheduler.shutdown();
+    }
+
+    @Test
+    void anotherSubsetOfTheSameFontIsNoFontChange() throws Exception {
+        File original = pdf("original.pdf", false, false);
+        File modified = pdf("modified.pdf", false, true);
+
+        assertEquals(List.of(), differingPages(original, modified));
+    }
+
+    @Test
+    void fontChangeIsHighlighted() throws Exception {
+        File original = pdf("original.pdf", false, false);
+        File modified = pdf("modified.pdf", true, false);
+
+        assertEquals(List.of(0), differingPages(original, modified));
+    }
+
+    private List<Integer> differingPages(File original, File modified) throws Exception {
+        List<Integer> pages = new ArrayList<>();
+        new ComparePDFText(pageRenderService, comparisonScheduler).compareFontOrText(original.getPath(),
+                modified.getPath(), null, null, true, ComparisonProgressListener.NONE,
+                (page, originalImage, modifiedImage) -> pages.add(page));
+        return pages;
+    }
+
+    /**
+     * A page saying "Hello world" in a subset of an embedded font.
+     *
+     * @param otherFont    whether the second word is in a standard font instead
+     * @param largerSubset whether the subset has a glyph the text does not use, which gives it another subset tag
+     */
+    private File pdf(String name, boolean otherFont, boolean largerSubset) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (PDDocument document = new PDDocument();
+             InputStream fontStream = ComparePDFTextTest.class.getResourceAsStream(LIBERATION_SANS)) {
+            PDType0Font font = PDType0Font.load(document, fontStream);
+            if (largerSubset) {
+                font.addToSubset('z');
+            }
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.beginText();
+                contentStream.setFont(font, 12);
+                contentStream.newLineAtOffset(72, 700);
+                contentStream.showText("Hello");
+                if (otherFont) {
+                    contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                }
+                contentStream.showText(" world");
+                contentStream.endText();
+            }
+            document.save(file);
+        }
+        return file;
+    }
+}
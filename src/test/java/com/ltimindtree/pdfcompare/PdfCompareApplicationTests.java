@@ -1,11 +1,27 @@
 package com.ltimindtree.pdfcompare;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
 
 @SpringBootTest
 class PdfCompareApplicationTests {
 
+    @TempDir
+    static Path tempDir;
+
+    /**
+     * The disk tier of the page cache goes to a temp folder, not to the home folder of whoever runs the tests.
+     */
+    @DynamicPropertySource
+    static void pageCacheDirectory(DynamicPropertyRegistry registry) {
+        registry.add("pdf-compare.page-cache.directory", () -> tempDir.resolve("page-cache").toString());
+    }
+
     @Test
     void contextLoads() {
     }
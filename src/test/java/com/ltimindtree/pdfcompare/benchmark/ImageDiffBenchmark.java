@@ -0,0 +1,84 @@
+package com.ltimindtree.pdfcompare.benchmark;
+
+import com.github.romankh3.image.comparison.ImageComparison;
+import com.github.romankh3.image.comparison.model.ImageComparisonResult;
+import com.ltimindtree.pdfcompare.diff.TileDiffEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the tile diff engine with the romankh3 image-comparison library on a 300 DPI A4 page (2480x3508).
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main ImageDiffBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageDiffBenchmark {
+
+    static final int WIDTH = 2480;
+    static final int HEIGHT = 3508;
+
+    @Param({"identical", "one-line", "every-line"})
+    public String change;
+
+    BufferedImage expected;
+    BufferedImage actual;
+    TileDiffEngine tileDiffEngine;
+
+    @Setup
+    public void setUp() {
+        expected = page(-1);
+        actual = switch (change) {
+            case "identical" -> page(-1);
+            case "one-line" -> page(20);
+            default -> page(Integer.MAX_VALUE);
+        };
+        tileDiffEngine = new TileDiffEngine(64, 0.1);
+    }
+
+    @Benchmark
+    public ImageComparisonResult imageComparisonLibrary() {
+        ImageComparison imageComparison = new ImageComparison(expected, actual);
+        imageComparison.setRectangleLineWidth(1);
+        imageComparison.setDifferenceRectangleColor(new Color(255, 0, 0, 51));
+        imageComparison.setDifferenceRectangleFilling(true, 20.0);
+        return imageComparison.compareImages();
+    }
+
+    @Benchmark
+    public List<Rectangle> tileDiffEngine() {
+        return tileDiffEngine.compare(expected, actual);
+    }
+
+    /**
+     * A text-like page, with the given line (or every line) changed.
+     */
+    static BufferedImage page(int changedLine) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.setColor(Color.BLACK);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 40));
+        for (int line = 0; line < 60; line++) {
+            boolean changed = line == changedLine || changedLine == Integer.MAX_VALUE;
+            graphics.drawString("Line " + line + " the quick brown " + (changed ? "fax" : "fox") + " jumps over the lazy dog",
+                    200, 200 + line * 52);
+        }
+        graphics.dispose();
+        return image;
+    }
+}
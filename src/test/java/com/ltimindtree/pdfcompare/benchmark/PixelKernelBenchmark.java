@@ -0,0 +1,66 @@
+package com.ltimindtree.pdfcompare.benchmark;
+
+import com.ltimindtree.pdfcompare.diff.PixelKernel;
+import com.ltimindtree.pdfcompare.diff.ScalarPixelKernel;
+import com.ltimindtree.pdfcompare.diff.TileDiffEngine;
+import com.ltimindtree.pdfcompare.diff.VectorPixelKernel;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the Vector API pixel kernels, on their own over a full page of pixels and inside the tile
+ * diff engine. Run like {@link ImageDiffBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PixelKernelBenchmark {
+
+    @Param({"scalar", "vector"})
+    public String kernelName;
+
+    @Param({"one-line", "every-line"})
+    public String change;
+
+    BufferedImage expected;
+    BufferedImage actual;
+    int[] expectedPixels;
+    int[] actualPixels;
+    PixelKernel kernel;
+    TileDiffEngine tileDiffEngine;
+    int[] bounds;
+
+    @Setup
+    public void setUp() {
+        expected = ImageDiffBenchmark.page(-1);
+        actual = ImageDiffBenchmark.page("one-line".equals(change) ? 20 : Integer.MAX_VALUE);
+        expectedPixels = ((DataBufferInt) expected.getRaster().getDataBuffer()).getData();
+        actualPixels = ((DataBufferInt) actual.getRaster().getDataBuffer()).getData();
+        kernel = "vector".equals(kernelName) ? new VectorPixelKernel() : new ScalarPixelKernel();
+        tileDiffEngine = new TileDiffEngine(64, 0.1, 1, kernel);
+        bounds = new int[2];
+    }
+
+    @Benchmark
+    public int countMismatches() {
+        return kernel.countMismatches(expectedPixels, 0, actualPixels, 0, expectedPixels.length, 0x00FFFFFF);
+    }
+
+    @Benchmark
+    public int countDifferences() {
+        return kernel.countDifferences(expectedPixels, 0, actualPixels, 0, expectedPixels.length, 1950, bounds);
+    }
+
+    @Benchmark
+    public List<Rectangle> tileDiffEngine() {
+        return tileDiffEngine.compare(expected, actual);
+    }
+}
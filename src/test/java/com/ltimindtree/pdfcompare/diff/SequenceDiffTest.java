@@ -0,0 +1,123 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SequenceDiffTest {
+
+    @Test
+    void insertedSymbolIsOneEdit() {
+        List<SequenceDiff.Edit> edits = SequenceDiff.diff(new int[]{1, 2, 3, 4}, new int[]{1, 2, 9, 3, 4});
+
+        assertEquals(List.of(new SequenceDiff.Edit(SequenceDiff.Operation.INSERT, 2, 2, 2, 3)), edits);
+    }
+
+    @Test
+    void shorterModifiedSequenceIsDelete() {
+        List<SequenceDiff.Edit> edits = SequenceDiff.diff(new int[]{1, 2, 3, 4}, new int[]{1, 4});
+
+        assertEquals(List.of(new SequenceDiff.Edit(SequenceDiff.Operation.DELETE, 1, 3, 1, 1)), edits);
+    }
+
+    @Test
+    void changedSymbolsAreReplace() {
+        List<SequenceDiff.Edit> edits = SequenceDiff.diff(new int[]{1, 2, 3, 4}, new int[]{1, 7, 8, 4});
+
+        assertEquals(List.of(new SequenceDiff.Edit(SequenceDiff.Operation.REPLACE, 1, 3, 1, 3)), edits);
+    }
+
+    @Test
+    void emptySequences() {
+        assertEquals(List.of(), SequenceDiff.diff(new int[0], new int[0]));
+        assertEquals(List.of(new SequenceDiff.Edit(SequenceDiff.Operation.INSERT, 0, 0, 0, 2)),
+                SequenceDiff.diff(new int[0], new int[]{1, 2}));
+    }
+
+    @Test
+    void editScriptIsShortestAndRebuildsModified() {
+        Random random = new Random(17);
+        for (int run = 0; run < 500; run++) {
+            int[] original = random.ints(random.nextInt(40), 0, 4).toArray();
+            int[] modified = random.ints(random.nextInt(40), 0, 4).toArray();
+
+            List<SequenceDiff.Edit> edits = SequenceDiff.diff(original, modified);
+
+            int changed = 0;
+            for (SequenceDiff.Edit edit : edits) {
+                changed += edit.originalEnd() - edit.originalStart() + edit.modifiedEnd() - edit.modifiedStart();
+            }
+            assertEquals(original.length + modified.length - 2 * lcsLength(original, modified), changed);
+            assertEquals(toList(modified), apply(original, modified, edits));
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void costCutoffReplacesLargeDifferentSequencesAsAWhole() {
+        int[] original = IntStream.range(0, 200_000).toArray();
+        int[] modified = IntStream.range(200_000, 400_000).toArray();
+
+        List<SequenceDiff.Edit> edits = SequenceDiff.diff(original, modified, 1000);
+
+        assertEquals(List.of(new SequenceDiff.Edit(SequenceDiff.Operation.REPLACE, 0, 200_000, 0, 200_000)), edits);
+    }
+
+    @Test
+    void costCutoffKeepsSmallChangesExact() {
+        Random random = new Random(23);
+        int[] original = IntStream.range(0, 50_000).toArray();
+        int[] modified = original.clone();
+        for (int i = 0; i < 200; i++) {
+            modified[random.nextInt(modified.length)] = -1 - i;
+        }
+
+        List<SequenceDiff.Edit> edits = SequenceDiff.diff(original, modified, 1000);
+
+        assertEquals(SequenceDiff.diff(original, modified), edits);
+        assertEquals(toList(modified), apply(original, modified, edits));
+    }
+
+    private static List<Integer> apply(int[] original, int[] modified, List<SequenceDiff.Edit> edits) {
+        List<Integer> result = new ArrayList<>();
+        int i = 0;
+        for (SequenceDiff.Edit edit : edits) {
+            for (; i < edit.originalStart(); i++) {
+                result.add(original[i]);
+            }
+            for (int j = edit.modifiedStart(); j < edit.modifiedEnd(); j++) {
+                result.add(modified[j]);
+            }
+            i = edit.originalEnd();
+        }
+        for (; i < original.length; i++) {
+            result.add(original[i]);
+        }
+        return result;
+    }
+
+    private static int lcsLength(int[] a, int[] b) {
+        int[][] lengths = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                lengths[i][j] = a[i - 1] == b[j - 1] ? lengths[i - 1][j - 1] + 1
+                        : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+            }
+        }
+        return lengths[a.length][b.length];
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingWordDiffTest {
+
+    @Test
+    void duplicateWordsKeepTheirOrderAndPage() throws IOException {
+        List<String> edits = diff("to be\for not to be", "to be\for not be", StreamingWordDiff.DEFAULT_WINDOW);
+
+        assertEquals(List.of("DELETE [2:to] []"), edits);
+    }
+
+    @Test
+    void smallWindowFindsTheChangesOfTheWholeText() throws IOException {
+        Random random = new Random(23);
+        StringBuilder original = new StringBuilder();
+        StringBuilder modified = new StringBuilder();
+        for (int word = 0; word < 5_000; word++) {
+            String text = "w" + word;
+            original.append(text).append(word % 400 == 399 ? '\f' : ' ');
+            int change = random.nextInt(200);
+            if (change == 0) {
+                modified.append("changed ");
+            } else if (change == 1) {
+                modified.append("inserted ").append(text).append(' ');
+            } else if (change != 2) {
+                modified.append(text).append(' ');
+            }
+        }
+
+        assertEquals(diff(original.toString(), modified.toString(), Integer.MAX_VALUE),
+                diff(original.toString(), modified.toString(), 64));
+    }
+
+    private static List<String> diff(String original, String modified, int window) throws IOException {
+        List<String> edits = new ArrayList<>();
+        StreamingWordDiff.diff(new StringReader(original), new StringReader(modified), window,
+                (operation, removed, added) -> edits.add(operation + " " + format(removed) + " " + format(added)));
+        return edits;
+    }
+
+    private static String format(List<StreamingWordDiff.Word> words) {
+        return words.stream().map(word -> word.page() + ":" + word.text()).toList().toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileDiffEngineTest {
+
+    private final ForkJoinPool bandPool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutdown() {
+        bandPool.shutdownNow();
+    }
+
+    private final TileDiffEngine engine = new TileDiffEngine(64, 0.1, 1, new ScalarPixelKernel());
+
+    @Test
+    void identicalImagesHaveNoRegions() {
+        BufferedImage expected = image(BufferedImage.TYPE_INT_RGB, 300, 200, 0x808080);
+        BufferedImage actual = image(BufferedImage.TYPE_INT_RGB, 300, 200, 0x808080);
+
+        assertEquals(List.of(), engine.compare(expected, actual));
+        assertTrue(engine.isIdentical(expected, actual));
+    }
+
+    @Test
+    void changesUnderTheToleranceAreIgnored() {
+        BufferedImage expected = image(BufferedImage.TYPE_INT_RGB, 300, 200, 0x808080);
+        BufferedImage actual = image(BufferedImage.TYPE_INT_RGB, 300, 200, 0x808080);
+        // 10 per channel is well under a tenth of the distance between black and white
+        actual.setRGB(10, 10, 0x8A8A8A);
+        actual.setRGB(150, 100, 0xFFFFFF);
+
+        assertEquals(List.of(new Rectangle(150, 100, 1, 1)), engine.compare(expected, actual));
+        assertFalse(engine.isIdentical(expected, actual));
+    }
+
+    @Test
+    void tilesNeedTheMinimumOfDifferingPixels() {
+        BufferedImage expected = image(BufferedImage.TYPE_INT_RGB, 128, 64, 0x000000);
+        BufferedImage actual = image(BufferedImage.TYPE_INT_RGB, 128, 64, 0x000000);
+        for (int x = 0; x < 3; x++) {
+            actual.setRGB(10 + x, 20, 0xFFFFFF);
+        }
+
+        assertEquals(List.of(new Rectangle(10, 20, 3, 1)),
+                new TileDiffEngine(64, 0.1, 3, new ScalarPixelKernel()).compare(expected, actual));
+        assertEquals(List.of(), new TileDiffEngine(64, 0.1, 4, new ScalarPixelKernel()).compare(expected, actual));
+    }
+
+    @Test
+    void touchingTilesMergeIntoOneRegion() {
+        BufferedImage expected = image(BufferedImage.TYPE_INT_RGB, 256, 256, 0x000000);
+        BufferedImage actual = image(BufferedImage.TYPE_INT_RGB, 256, 256, 0x000000);
+        // across the border of four tiles
+        fill(actual, 50, 40, 30, 40, 0xFFFFFF);
+        // diagonal neighbours, below-left of each other
+        fill(actual, 200, 130, 2, 2, 0xFFFFFF);
+        fill(actual, 130, 200, 1, 1, 0xFFFFFF);
+        // a tile away from the others
+        fill(actual, 10, 200, 5, 5, 0xFFFFFF);
+
+        assertEquals(List.of(new Rectangle(50, 40, 30, 40), new Rectangle(130, 130, 72, 71), new Rectangle(10, 200, 5, 5)),
+                engine.compare(expected, actual));
+    }
+
+    @Test
+    void imagesOfDifferentSizeDifferEverywhere() {
+        BufferedImage expected = image(BufferedImage.TYPE_INT_RGB, 300, 200, 0x808080);
+        BufferedImage actual = image(BufferedImage.TYPE_INT_RGB, 200, 400, 0x808080);
+
+        assertEquals(List.of(new Rectangle(0, 0, 300, 400)), engine.compare(expected, actual));
+        assertFalse(engine.isIdentical(expected, actual));
+    }
+
+    @Test
+    void grayRastersUseTheTolerance() {
+        BufferedImage expected = image(BufferedImage.TYPE_BYTE_GRAY, 100, 100, 0x808080);
+        BufferedImage actual = image(BufferedImage.TYPE_BYTE_GRAY, 100, 100, 0x808080);
+        fill(actual, 0, 0, 10, 10, 0x8A8A8A);
+        fill(actual, 70, 80, 4, 3, 0xFFFFFF);
+
+        assertEquals(List.of(new Rectangle(70, 80, 4, 3)), engine.compare(expected, actual));
+    }
+
+    @Test
+    void binaryRastersDifferByPixel() {
+        BufferedImage expected = image(BufferedImage.TYPE_BYTE_BINARY, 100, 100, 0x000000);
+        BufferedImage actual = image(BufferedImage.TYPE_BYTE_BINARY, 100, 100, 0x000000);
+        // not aligned to the bytes of the packed rows
+        fill(actual, 13, 7, 5, 2, 0xFFFFFF);
+
+        assertEquals(List.of(new Rectangle(13, 7, 5, 2)), engine.compare(expected, actual));
+    }
+
+    @Test
+    void bandsFindTheSameRegionsAsOnePass() {
+        BufferedImage expected = new BufferedImage(1000, 2000, BufferedImage.TYPE_INT_RGB);
+        BufferedImage actual = new BufferedImage(1000, 2000, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(5);
+        Graphics2D graphics = actual.createGraphics();
+        graphics.setColor(Color.WHITE);
+        for (int i = 0; i < 40; i++) {
+            // some of them cross the border of two bands
+            graphics.fillRect(random.nextInt(1000), random.nextInt(2000), 1 + random.nextInt(150), 1 + random.nextInt(300));
+        }
+        graphics.dispose();
+
+        List<Rectangle> onePass = new TileDiffEngine(64, 0.1, 1, new ScalarPixelKernel())
+                .compare(expected, actual);
+        List<Rectangle> bands = new TileDiffEngine(64, 0.1, 1, new ScalarPixelKernel(), bandPool, 0)
+                .compare(expected, actual);
+
+        assertEquals(sorted(onePass), sorted(bands));
+    }
+
+    private static BufferedImage image(int type, int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        fill(image, 0, 0, width, height, rgb);
+        return image;
+    }
+
+    private static void fill(BufferedImage image, int x, int y, int width, int height, int rgb) {
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(rgb));
+        graphics.fillRect(x, y, width, height);
+        graphics.dispose();
+    }
+
+    private static List<Rectangle> sorted(List<Rectangle> regions) {
+        return regions.stream()
+                .sorted(Comparator.comparingInt((Rectangle region) -> region.y).thenComparingInt(region -> region.x))
+                .toList();
+    }
+}
@@ -0,0 +1,51 @@
+package com.ltimindtree.pdfcompare.diff;
+
+import jdk.incubator.vector.IntVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VectorPixelKernelTest {
+
+    private final PixelKernel vector = new VectorPixelKernel();
+    private final PixelKernel scalar = new ScalarPixelKernel();
+
+    @Test
+    void countsAndBoundsMatchTheScalarKernel() {
+        Random random = new Random(41);
+        int lanes = IntVector.SPECIES_PREFERRED.length();
+        for (int run = 0; run < 2_000; run++) {
+            // widths below, at and around multiples of the vector length leave tails of every size
+            int length = random.nextInt(5 * lanes + 3);
+            int aFrom = random.nextInt(7);
+            int bFrom = random.nextInt(7);
+            int[] a = random.ints(aFrom + length + random.nextInt(5), 0, 1 << 24).toArray();
+            int[] b = new int[bFrom + length + random.nextInt(5)];
+            for (int i = 0; i < length; i++) {
+                int pixel = a[aFrom + i];
+                b[bFrom + i] = switch (random.nextInt(4)) {
+                    case 0 -> random.nextInt(1 << 24);
+                    // a small change, under or over the threshold
+                    case 1 -> pixel ^ random.nextInt(16);
+                    // the alpha channel only
+                    case 2 -> pixel | 0xFF000000;
+                    default -> pixel;
+                };
+            }
+            int squaredThreshold = random.nextInt(3 * 255 * 255 / 4);
+            int mask = random.nextBoolean() ? 0x00FFFFFF : 0xFFFFFFFF;
+
+            assertEquals(scalar.countMismatches(a, aFrom, b, bFrom, length, mask),
+                    vector.countMismatches(a, aFrom, b, bFrom, length, mask));
+
+            int[] scalarBounds = {-2, -2};
+            int[] vectorBounds = {-2, -2};
+            assertEquals(scalar.countDifferences(a, aFrom, b, bFrom, length, squaredThreshold, scalarBounds),
+                    vector.countDifferences(a, aFrom, b, bFrom, length, squaredThreshold, vectorBounds));
+            assertArrayEquals(scalarBounds, vectorBounds);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.ColorMode;
+import com.ltimindtree.pdfcompare.service.ComparisonJob;
+import com.ltimindtree.pdfcompare.service.ComparisonPair;
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.service.ComparisonService;
+import com.ltimindtree.pdfcompare.service.DiffFormat;
+import com.ltimindtree.pdfcompare.web.dto.MyResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonJobServiceImplTest {
+
+    private final ComparisonJobServiceImpl comparisonJobService = new ComparisonJobServiceImpl(
+            (originalFile, modifiedFile, displayName, comparisonType, colorMode, diffFormat, listener) ->
+                    MyResponse.builder()
+                            .displayName(displayName)
+                            .filename("")
+                            .message("Files are identical.")
+                            .build(),
+            new PdfCompareProperties());
+
+    @AfterEach
+    void shutdown() {
+        comparisonJobService.shutdown();
+    }
+
+    @Test
+    void failedPairsFailOnTheirOwn() throws Exception {
+        List<ComparisonPair> pairs = List.of(
+                ComparisonPair.failed("upload.pdf", "Upload failed: disk full"),
+                new ComparisonPair(new File("original.pdf"), null, "unmatched.pdf"),
+                new ComparisonPair(new File("original.pdf"), new File("modified.pdf"), "compared.pdf"));
+
+        ComparisonJob job = comparisonJobService.submit(pairs, "image", ColorMode.RGB, DiffFormat.RASTER);
+        List<MyResponse> responses = job.getCompletion().get(10, TimeUnit.SECONDS);
+
+        assertEquals(ComparisonJob.State.COMPLETED, job.getState());
+        assertEquals(List.of("upload.pdf", "unmatched.pdf", "compared.pdf"),
+                responses.stream().map(MyResponse::getDisplayName).toList());
+        assertEquals("Upload failed: disk full", responses.get(0).getError());
+        assertNotNull(responses.get(1).getError());
+        assertNull(responses.get(2).getError());
+        assertEquals(3, job.getPairsCompleted());
+    }
+
+    @Test
+    void expiredJobsReleaseTheirResults() throws Exception {
+        List<MyResponse> released = new CopyOnWriteArrayList<>();
+        PdfCompareProperties properties = new PdfCompareProperties();
+        properties.getJobs().setRetention(Duration.ZERO);
+        ComparisonJobServiceImpl expiringJobService = new ComparisonJobServiceImpl(new ComparisonService() {
+            @Override
+            public MyResponse compare(File originalFile, File modifiedFile, String displayName, String comparisonType,
+                                      ColorMode colorMode, DiffFormat diffFormat, ComparisonProgressListener listener) {
+                return MyResponse.builder()
+                        .displayName(displayName)
+                        .url(displayName)
+                        .build();
+            }
+
+            @Override
+            public void release(MyResponse response) {
+                released.add(response);
+            }
+        }, properties);
+        try {
+            List<ComparisonPair> pairs = List.of(
+                    new ComparisonPair(new File("original.pdf"), new File("modified.pdf"), "diff.pdf"));
+            ComparisonJob job = expiringJobService.submit(pairs, "image", ColorMode.RGB, DiffFormat.RASTER);
+            job.getCompletion().get(10, TimeUnit.SECONDS);
+            assertTrue(released.isEmpty());
+
+            Thread.sleep(5);
+            // submitting removes the expired jobs
+            expiringJobService.submit(pairs, "image", ColorMode.RGB, DiffFormat.RASTER);
+
+            assertTrue(expiringJobService.find(job.getId()).isEmpty());
+            assertEquals(List.of("diff.pdf"), released.stream().map(MyResponse::getUrl).toList());
+        } finally {
+            expiringJobService.shutdown();
+        }
+    }
+}
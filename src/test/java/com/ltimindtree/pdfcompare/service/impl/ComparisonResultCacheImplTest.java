@@ -0,0 +1,211 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.ColorMode;
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.service.ComparisonResultCache;
+import com.ltimindtree.pdfcompare.service.ComparisonResultCache.Key;
+import com.ltimindtree.pdfcompare.service.DiffFormat;
+import com.ltimindtree.pdfcompare.web.dto.MyResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonResultCacheImplTest {
+
+    private static final Key KEY = key("original", "modified");
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger comparisons = new AtomicInteger();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sameComparisonIsAnsweredFromTheCache() throws Exception {
+        ComparisonResultCache cache = cache(Duration.ofHours(1), DataSize.ofMegabytes(1));
+        MyResponse response = cache.getOrCompute(KEY, ComparisonProgressListener.NONE, diff("diff"));
+
+        List<String> progress = new ArrayList<>();
+        assertSame(response, cache.getOrCompute(KEY, recordingListener(progress), diff("other")));
+
+        assertEquals(1, comparisons.get());
+        assertEquals(List.of("total 1", "rendered 0", "compared 0 true", "written 0"), progress);
+    }
+
+    @Test
+    @Timeout(10)
+    void concurrentIdenticalComparisonsRunOnce() throws Exception {
+        ComparisonResultCache cache = cache(Duration.ofHours(1), DataSize.ofMegabytes(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<MyResponse> first = executor.submit(() ->
+                cache.getOrCompute(KEY, ComparisonProgressListener.NONE, listener -> {
+                    started.countDown();
+                    release.await();
+                    return diff("diff").compare(listener);
+                }));
+        started.await();
+
+        List<String> progress = new ArrayList<>();
+        Future<MyResponse> second = executor.submit(() ->
+                cache.getOrCompute(KEY, recordingListener(progress), diff("other")));
+        while (meterRegistry.counter("pdf.result.cache.coalesced").count() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertSame(first.get(), second.get());
+        assertEquals(1, comparisons.get());
+        assertEquals(List.of("total 1", "rendered 0", "compared 0 true", "written 0"), progress);
+    }
+
+    @Test
+    void expiredResultsAreComparedAgain() throws Exception {
+        ComparisonResultCache cache = cache(Duration.ZERO, DataSize.ofMegabytes(1));
+        MyResponse expired = cache.getOrCompute(KEY, ComparisonProgressListener.NONE, diff("expired"));
+        cache.release(expired.getUrl());
+
+        MyResponse response = cache.getOrCompute(KEY, ComparisonProgressListener.NONE, diff("fresh"));
+
+        assertEquals(2, comparisons.get());
+        assertNotEquals(expired.getUrl(), response.getUrl());
+        assertFalse(Files.exists(Path.of(expired.getUrl())));
+    }
+
+    @Test
+    void leastRecentlyUsedResultsAreEvictedBeyondTheDiskSize() throws Exception {
+        // room for two diffs of 4 bytes
+        ComparisonResultCache cache = cache(Duration.ofHours(1), DataSize.ofBytes(10));
+        Key first = key("a", "b");
+        Key second = key("b", "c");
+        Key third = key("c", "d");
+        MyResponse firstResponse = cache.getOrCompute(first, ComparisonProgressListener.NONE, diff("first"));
+        MyResponse secondResponse = cache.getOrCompute(second, ComparisonProgressListener.NONE, diff("second"));
+        cache.getOrCompute(first, ComparisonProgressListener.NONE, diff("first"));
+        cache.release(secondResponse.getUrl());
+
+        cache.getOrCompute(third, ComparisonProgressListener.NONE, diff("third"));
+
+        assertTrue(Files.exists(Path.of(firstResponse.getUrl())));
+        assertFalse(Files.exists(Path.of(secondResponse.getUrl())));
+        assertEquals(3, comparisons.get());
+        cache.getOrCompute(second, ComparisonProgressListener.NONE, diff("second"));
+        assertEquals(4, comparisons.get());
+    }
+
+    @Test
+    void heldDiffsOutliveTheirResult() throws Exception {
+        ComparisonResultCache cache = cache(Duration.ZERO, DataSize.ofMegabytes(1));
+        MyResponse held = cache.getOrCompute(KEY, ComparisonProgressListener.NONE, diff("held"));
+
+        cache.getOrCompute(KEY, ComparisonProgressListener.NONE, diff("fresh"));
+
+        assertEquals(2, comparisons.get());
+        assertTrue(Files.exists(Path.of(held.getUrl())));
+        cache.release(held.getUrl());
+        assertFalse(Files.exists(Path.of(held.getUrl())));
+    }
+
+    @Test
+    void releasedDiffsStayWhileTheirResultIsCached() throws Exception {
+        ComparisonResultCache cache = cache(Duration.ofHours(1), DataSize.ofMegabytes(1));
+        MyResponse response = cache.getOrCompute(KEY, ComparisonProgressListener.NONE, diff("diff"));
+        cache.getOrCompute(KEY, ComparisonProgressListener.NONE, diff("other"));
+
+        cache.release(response.getUrl());
+        cache.release(response.getUrl());
+
+        assertTrue(Files.exists(Path.of(response.getUrl())));
+    }
+
+    @Test
+    void failedComparisonsAreNotCached() throws Exception {
+        ComparisonResultCache cache = cache(Duration.ofHours(1), DataSize.ofMegabytes(1));
+
+        IOException failure = assertThrows(IOException.class, () ->
+                cache.getOrCompute(KEY, ComparisonProgressListener.NONE, listener -> {
+                    comparisons.incrementAndGet();
+                    throw new IOException("damaged PDF");
+                }));
+        MyResponse response = cache.getOrCompute(KEY, ComparisonProgressListener.NONE, diff("diff"));
+
+        assertEquals("damaged PDF", failure.getMessage());
+        assertNotNull(response.getUrl());
+        assertEquals(2, comparisons.get());
+    }
+
+    private ComparisonResultCache cache(Duration ttl, DataSize maxDiskSize) {
+        PdfCompareProperties properties = new PdfCompareProperties();
+        properties.getResultCache().setTtl(ttl);
+        properties.getResultCache().setMaxDiskSize(maxDiskSize);
+        return new ComparisonResultCacheImpl(properties, meterRegistry);
+    }
+
+    /**
+     * A comparison of one differing page that writes a diff PDF of 4 bytes.
+     */
+    private ComparisonResultCache.Comparison diff(String name) {
+        return listener -> {
+            comparisons.incrementAndGet();
+            listener.pagesToCompare(1);
+            listener.pageRendered(0);
+            listener.pageCompared(0, true);
+            listener.pageWritten(0);
+            Path diffPdf = Files.writeString(tempDir.resolve(name + ".pdf"), "%PDF");
+            return MyResponse.builder()
+                    .filename(name)
+                    .isDiff(true)
+                    .url(diffPdf.toString())
+                    .build();
+        };
+    }
+
+    private static Key key(String originalHash, String modifiedHash) {
+        return new Key(originalHash, modifiedHash, "image", ColorMode.RGB, DiffFormat.RASTER);
+    }
+
+    private static ComparisonProgressListener recordingListener(List<String> progress) {
+        return new ComparisonProgressListener() {
+            @Override
+            public void pagesToCompare(int pageCount) {
+                progress.add("total " + pageCount);
+            }
+
+            @Override
+            public void pageRendered(int pageIndex) {
+                progress.add("rendered " + pageIndex);
+            }
+
+            @Override
+            public void pageCompared(int pageIndex, boolean different) {
+                progress.add("compared " + pageIndex + " " + different);
+            }
+
+            @Override
+            public void pageWritten(int pageIndex) {
+                progress.add("written " + pageIndex);
+            }
+        };
+    }
+}
@@ -0,0 +1,165 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonSchedulerImplTest {
+
+    private ComparisonSchedulerImpl scheduler;
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void resultsAreInTaskOrder() throws Exception {
+        scheduler = scheduler(4, 2, 4);
+
+        List<Callable<Integer>> tasks = IntStream.range(0, 100).<Callable<Integer>>mapToObj(i -> () -> i * i).toList();
+
+        assertEquals(IntStream.range(0, 100).map(i -> i * i).boxed().toList(), scheduler.invokeAll(tasks));
+    }
+
+    @Test
+    void failureIsRethrownAndDropsTheTasksNotStarted() {
+        scheduler = scheduler(1, 2, 4);
+        AtomicInteger started = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int index = i;
+            tasks.add(() -> {
+                started.incrementAndGet();
+                if (index == 3) {
+                    throw new IOException("page 3");
+                }
+                return null;
+            });
+        }
+
+        IOException e = assertThrows(IOException.class, () -> scheduler.invokeAll(tasks));
+
+        assertEquals("page 3", e.getMessage());
+        assertTrue(started.get() < 50);
+    }
+
+    @Test
+    void resultsAreConsumedInOrderAndDoNotPileUp() throws Exception {
+        scheduler = scheduler(2, 2, 4);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger mostAhead = new AtomicInteger();
+        List<Callable<Integer>> tasks = IntStream.range(0, 100).<Callable<Integer>>mapToObj(i -> () -> {
+            mostAhead.accumulateAndGet(started.incrementAndGet() - consumed.get(), Math::max);
+            return i;
+        }).toList();
+
+        scheduler.invokeAll(tasks, (index, result) -> {
+            assertEquals(consumed.get(), index);
+            assertEquals(index, result);
+            consumed.incrementAndGet();
+        });
+
+        assertEquals(100, consumed.get());
+        // queue depth plus pool size
+        assertTrue(mostAhead.get() <= 4, "ahead " + mostAhead.get());
+    }
+
+    @Test
+    void failingConsumerStopsTheRequest() {
+        scheduler = scheduler(1, 2, 4);
+        AtomicInteger started = new AtomicInteger();
+        List<Callable<Integer>> tasks = IntStream.range(0, 50).<Callable<Integer>>mapToObj(i -> () -> {
+            started.incrementAndGet();
+            return i;
+        }).toList();
+
+        IOException e = assertThrows(IOException.class, () -> scheduler.invokeAll(tasks, (index, result) -> {
+            throw new IOException("write " + index);
+        }));
+
+        assertEquals("write 0", e.getMessage());
+        assertTrue(started.get() < 50);
+    }
+
+    @Test
+    void requestsTakeTurns() throws Exception {
+        scheduler = scheduler(1, 4, 4);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        // the only worker is busy until both requests have queued their tasks
+        CompletableFuture<List<Object>> blocker = CompletableFuture.supplyAsync(() -> invoke(List.of(() -> {
+            blocked.countDown();
+            release.await();
+            return null;
+        })));
+        blocked.await();
+        CompletableFuture<List<Object>> large = CompletableFuture.supplyAsync(() -> invoke(tasks("large", 4, order)));
+        while (scheduler.getQueued() < 4) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<List<Object>> small = CompletableFuture.supplyAsync(() -> invoke(tasks("small", 2, order)));
+        while (scheduler.getQueued() < 6) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        CompletableFuture.allOf(blocker, large, small).join();
+
+        assertEquals(List.of("large", "small", "large", "small", "large", "large"), order);
+    }
+
+    @Test
+    void requestsBeyondTheLimitAreRejected() throws Exception {
+        scheduler = scheduler(1, 1, 1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<Object>> running = CompletableFuture.supplyAsync(() -> invoke(List.of(() -> {
+            blocked.countDown();
+            release.await();
+            return null;
+        })));
+        blocked.await();
+
+        assertThrows(RejectedExecutionException.class, () -> scheduler.invokeAll(List.of(() -> null)));
+
+        release.countDown();
+        running.join();
+    }
+
+    private List<Object> invoke(List<Callable<Object>> tasks) {
+        try {
+            return scheduler.invokeAll(tasks);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Callable<Object>> tasks(String name, int count, List<String> order) {
+        return IntStream.range(0, count).<Callable<Object>>mapToObj(i -> () -> order.add(name)).toList();
+    }
+
+    private static ComparisonSchedulerImpl scheduler(int poolSize, int queueDepth, int maxRequests) {
+        PdfCompareProperties properties = new PdfCompareProperties();
+        properties.getScheduler().setPoolSize(poolSize);
+        properties.getScheduler().setQueueDepth(queueDepth);
+        properties.getScheduler().setMaxRequests(maxRequests);
+        return new ComparisonSchedulerImpl(properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,70 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiffManifestBuilderTest {
+
+    @Test
+    void runsAlternateStartingWithUnchangedCells() {
+        // 4x4 mask: ..##/..#./..../##..
+        BitSet mask = mask("..##..#.....##..");
+
+        int[] runs = DiffManifestBuilder.runLengths(mask);
+
+        assertArrayEquals(new int[]{2, 2, 2, 1, 5, 2}, runs);
+        assertEquals(mask, decode(runs));
+    }
+
+    @Test
+    void changedFirstCellStartsWithAnEmptyUnchangedRun() {
+        BitSet mask = mask("#.##");
+
+        int[] runs = DiffManifestBuilder.runLengths(mask);
+
+        assertArrayEquals(new int[]{0, 1, 1, 2}, runs);
+        assertEquals(mask, decode(runs));
+    }
+
+    @Test
+    void allClearMaskHasNoRuns() {
+        assertArrayEquals(new int[0], DiffManifestBuilder.runLengths(new BitSet(64)));
+        assertEquals(new BitSet(), decode(new int[0]));
+    }
+
+    @Test
+    void allSetMaskIsOneChangedRun() {
+        BitSet mask = new BitSet();
+        mask.set(0, 64);
+
+        int[] runs = DiffManifestBuilder.runLengths(mask);
+
+        assertArrayEquals(new int[]{0, 64}, runs);
+        assertEquals(mask, decode(runs));
+    }
+
+    /**
+     * One character per cell, {@code #} for a changed cell.
+     */
+    private static BitSet mask(String cells) {
+        BitSet mask = new BitSet();
+        for (int i = 0; i < cells.length(); i++) {
+            mask.set(i, cells.charAt(i) == '#');
+        }
+        return mask;
+    }
+
+    private static BitSet decode(int[] runs) {
+        BitSet mask = new BitSet();
+        int position = 0;
+        for (int i = 0; i < runs.length; i += 2) {
+            position += runs[i];
+            mask.set(position, position + runs[i + 1]);
+            position += runs[i + 1];
+        }
+        return mask;
+    }
+}
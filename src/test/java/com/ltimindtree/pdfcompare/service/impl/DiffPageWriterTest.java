@@ -0,0 +1,104 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiffPageWriterTest {
+
+    @TempDir
+    File tempDir;
+
+    private final ExecutorService encodeExecutor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        encodeExecutor.shutdownNow();
+    }
+
+    @Test
+    void identicalImagesAreWrittenOnceAndPagesKeepTheirOrder() throws Exception {
+        BufferedImage original = image(100, 50, Color.WHITE);
+        BufferedImage modified = image(100, 50, Color.YELLOW);
+        BufferedImage other = image(30, 20, Color.BLUE);
+        List<Integer> writtenPages = new CopyOnWriteArrayList<>();
+        File diffPdf = new File(tempDir, "diff.pdf");
+
+        try (PDDocument document = new PDDocument(IOUtils.createTempFileOnlyStreamCache());
+             DiffPageWriter writer = new DiffPageWriter(document, 72, encodeExecutor, 2,
+                     pageWrittenListener(writtenPages))) {
+            List<Rectangle> differences = List.of(new Rectangle(10, 10, 20, 10));
+            writer.addRasterPage(0, original, modified, differences);
+            writer.addRasterPage(1, other, other, differences);
+            writer.addRasterPage(2, image(100, 50, Color.WHITE), image(100, 50, Color.YELLOW), differences);
+            writer.flush();
+            document.save(diffPdf);
+        }
+
+        assertEquals(List.of(0, 1, 2), writtenPages);
+        try (PDDocument diffDocument = Loader.loadPDF(diffPdf)) {
+            assertEquals(3, diffDocument.getNumberOfPages());
+            List<Float> pageWidths = new ArrayList<>();
+            List<COSObjectKey> images = new ArrayList<>();
+            for (PDPage page : diffDocument.getPages()) {
+                pageWidths.add(page.getMediaBox().getWidth());
+                images.addAll(imageKeys(page));
+            }
+            assertEquals(List.of(200f, 60f, 200f), pageWidths);
+            // the same image on both sides of the second page is one resource of it
+            assertEquals(5, images.size());
+            assertEquals(3, new HashSet<>(images).size());
+            assertEquals(Set.copyOf(imageKeys(diffDocument.getPage(0))),
+                    Set.copyOf(imageKeys(diffDocument.getPage(2))));
+        }
+    }
+
+    private static List<COSObjectKey> imageKeys(PDPage page) {
+        List<COSObjectKey> keys = new ArrayList<>();
+        for (COSName name : page.getResources().getXObjectNames()) {
+            COSBase xObject = page.getResources().getCOSObject().getCOSDictionary(COSName.XOBJECT).getItem(name);
+            keys.add(((COSObject) xObject).getKey());
+        }
+        return keys;
+    }
+
+    private static BufferedImage image(int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    private static ComparisonProgressListener pageWrittenListener(List<Integer> writtenPages) {
+        return new ComparisonProgressListener() {
+            @Override
+            public void pageWritten(int pageIndex) {
+                writtenPages.add(pageIndex);
+            }
+        };
+    }
+}
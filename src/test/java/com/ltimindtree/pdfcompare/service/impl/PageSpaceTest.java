@@ -0,0 +1,118 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageSpaceTest {
+
+    private static final float DPI = 144;
+    // the crop box is 300 x 250 points, offset from the media box
+    private static final PDRectangle MEDIA_BOX = new PDRectangle(0, 0, 400, 300);
+    private static final PDRectangle CROP_BOX = new PDRectangle(50, 20, 300, 250);
+    private static final Rectangle2D MARK = new Rectangle2D.Float(100, 60, 40, 20);
+
+    @Test
+    void pixelsOfAnUnturnedPageAreOffsetByTheCropBox() {
+        PageSpace pageSpace = PageSpace.of(page(0));
+
+        // the top left corner of the rendered page
+        Rectangle2D userSpace = pageSpace.toUserSpace(new Rectangle(0, 0, 20, 20), DPI);
+
+        assertEquals(new Rectangle2D.Double(50, 260, 10, 10), userSpace);
+        assertEquals(300, pageSpace.getWidth());
+        assertEquals(250, pageSpace.getHeight());
+    }
+
+    @Test
+    void renderedMarkMapsBackToItsUserSpace() throws IOException {
+        assertMarkMapsBack(0);
+    }
+
+    @Test
+    void renderedMarkOfAPageTurnedBy90MapsBackToItsUserSpace() throws IOException {
+        PageSpace pageSpace = assertMarkMapsBack(90);
+
+        assertEquals(250, pageSpace.getWidth());
+        assertEquals(300, pageSpace.getHeight());
+    }
+
+    @Test
+    void renderedMarkOfAPageTurnedBy180MapsBackToItsUserSpace() throws IOException {
+        PageSpace pageSpace = assertMarkMapsBack(180);
+
+        assertEquals(300, pageSpace.getWidth());
+        assertEquals(250, pageSpace.getHeight());
+    }
+
+    @Test
+    void renderedMarkOfAPageTurnedBy270MapsBackToItsUserSpace() throws IOException {
+        PageSpace pageSpace = assertMarkMapsBack(270);
+
+        assertEquals(250, pageSpace.getWidth());
+        assertEquals(300, pageSpace.getHeight());
+    }
+
+    @Test
+    void negativeRotationIsNormalised() {
+        assertEquals(270, PageSpace.of(page(-90)).getRotation());
+    }
+
+    /**
+     * Renders a page with a black mark the way the comparison does and maps the pixels of the mark back.
+     */
+    private static PageSpace assertMarkMapsBack(int rotation) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = page(rotation);
+            document.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.setNonStrokingColor(Color.BLACK);
+                contentStream.addRect((float) MARK.getX(), (float) MARK.getY(),
+                        (float) MARK.getWidth(), (float) MARK.getHeight());
+                contentStream.fill();
+            }
+            BufferedImage image = new PDFRenderer(document).renderImageWithDPI(0, DPI);
+            PageSpace pageSpace = PageSpace.of(page);
+
+            assertEquals(Math.round(pageSpace.getWidth() * DPI / 72), image.getWidth());
+            assertEquals(Math.round(pageSpace.getHeight() * DPI / 72), image.getHeight());
+            Rectangle2D userSpace = pageSpace.toUserSpace(darkPixels(image), DPI);
+            assertEquals(MARK.getX(), userSpace.getX(), 1, "x");
+            assertEquals(MARK.getY(), userSpace.getY(), 1, "y");
+            assertEquals(MARK.getWidth(), userSpace.getWidth(), 1, "width");
+            assertEquals(MARK.getHeight(), userSpace.getHeight(), 1, "height");
+            return pageSpace;
+        }
+    }
+
+    private static PDPage page(int rotation) {
+        PDPage page = new PDPage(MEDIA_BOX);
+        page.setCropBox(CROP_BOX);
+        page.setRotation(rotation);
+        return page;
+    }
+
+    private static Rectangle darkPixels(BufferedImage image) {
+        Rectangle bounds = null;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) & 0xFF) < 128) {
+                    Rectangle pixel = new Rectangle(x, y, 1, 1);
+                    bounds = bounds == null ? pixel : bounds.union(pixel);
+                }
+            }
+        }
+        assertNotNull(bounds, "mark not rendered");
+        return bounds;
+    }
+}
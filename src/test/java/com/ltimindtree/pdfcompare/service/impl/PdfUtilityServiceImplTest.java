@@ -0,0 +1,246 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.ColorMode;
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.service.DiffFormat;
+import com.ltimindtree.pdfcompare.service.FileService;
+import com.ltimindtree.pdfcompare.web.dto.PageDiff;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfUtilityServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final PdfCompareProperties properties = properties();
+    private final PageRenderServiceImpl pageRenderService = new PageRenderServiceImpl(properties);
+    private final ComparisonSchedulerImpl comparisonScheduler =
+            new ComparisonSchedulerImpl(properties, new SimpleMeterRegistry());
+    private final PdfUtilityServiceImpl pdfUtilityService =
+            new PdfUtilityServiceImpl(new TempDirFileService(), pageRenderService, comparisonScheduler, properties);
+
+    @AfterEach
+    void shutdown() {
+        pdfUtilityService.shutdown();
+        comparisonScheduler.shutdown();
+        pageRenderService.shutdown();
+    }
+
+    @Test
+    void addedPageIsADifferingPage() throws Exception {
+        File original = pdf("original.pdf", "same page");
+        File modified = pdf("modified.pdf", "same page", "added page");
+        List<Integer> differingPages = new ArrayList<>();
+
+        String diffPdf = pdfUtilityService.compareAndCreateDiffPdf(original, modified, null, null, "diff",
+                ColorMode.RGB, DiffFormat.RASTER, differingPagesListener(differingPages));
+
+        assertEquals(List.of(1), differingPages);
+        assertNotNull(diffPdf);
+        try (PDDocument diffDocument = Loader.loadPDF(new File(diffPdf))) {
+            assertEquals(1, diffDocument.getNumberOfPages());
+        }
+    }
+
+    @Test
+    void removedPageIsADifferingVectorPage() throws Exception {
+        File original = pdf("original.pdf", "same page", "removed page");
+        File modified = pdf("modified.pdf", "same page");
+
+        String diffPdf = pdfUtilityService.compareAndCreateDiffPdf(original, modified, null, null, "diff",
+                ColorMode.RGB, DiffFormat.VECTOR, ComparisonProgressListener.NONE);
+
+        assertNotNull(diffPdf);
+        try (PDDocument diffDocument = Loader.loadPDF(new File(diffPdf))) {
+            assertEquals(1, diffDocument.getNumberOfPages());
+            // the removed page next to a blank page of its size
+            PDRectangle mediaBox = diffDocument.getPage(0).getMediaBox();
+            assertEquals(2 * PDRectangle.LETTER.getWidth(), mediaBox.getWidth(), 0.01);
+        }
+    }
+
+    @Test
+    void removedPageIsInTheManifest() throws Exception {
+        File original = pdf("original.pdf", "same page", "removed page");
+        File modified = pdf("modified.pdf", "same page");
+
+        List<PageDiff> pageDiffs = pdfUtilityService.compareAndDescribe(original, modified, null, null,
+                ColorMode.RGB, ComparisonProgressListener.NONE);
+
+        assertEquals(List.of(2), pageDiffs.stream().map(PageDiff::getPage).toList());
+        assertEquals(1, pageDiffs.get(0).getRegions().size());
+    }
+
+    @Test
+    void samePagesAreNoDifference() throws Exception {
+        File original = pdf("original.pdf", "same page", "same page too");
+        File modified = pdf("modified.pdf", "same page", "same page too");
+
+        assertNull(pdfUtilityService.compareAndCreateDiffPdf(original, modified, null, null, "diff",
+                ColorMode.RGB, DiffFormat.RASTER, ComparisonProgressListener.NONE));
+    }
+
+    @Test
+    void prefilterFindsWhatTheFullResolutionComparisonFinds() throws Exception {
+        // changes which are small or faint at the prefilter resolution, and a page which is the same
+        File original = pdf("original.pdf",
+                text(72, 700, 24, "same page"),
+                line(0.1f, 0f),
+                text(72, 700, 3, "a"),
+                text(72, 700, 24, "shifted text"),
+                fill(0.5f),
+                fill(0.5f));
+        File modified = pdf("modified.pdf",
+                text(72, 700, 24, "same page"),
+                line(0.1f, 1f),
+                text(72, 700, 3, "e"),
+                text(72.2f, 700, 24, "shifted text"),
+                fill(0.52f),
+                fill(0.1f));
+
+        assertEquals(describe(original, modified, false), describe(original, modified, true));
+    }
+
+    /**
+     * Pages and regions of the manifest, compared at 300 DPI with or without the 72 DPI prefilter.
+     */
+    private List<String> describe(File original, File modified, boolean prefilterEnabled) throws Exception {
+        PdfCompareProperties fullResolution = properties();
+        fullResolution.getImage().setDpi(300);
+        fullResolution.getImage().getPrefilter().setEnabled(prefilterEnabled);
+        fullResolution.getImage().getPrefilter().setDpi(72);
+        PdfUtilityServiceImpl service =
+                new PdfUtilityServiceImpl(new TempDirFileService(), pageRenderService, comparisonScheduler, fullResolution);
+        try {
+            return service.compareAndDescribe(original, modified, null, null, ColorMode.RGB,
+                            ComparisonProgressListener.NONE).stream()
+                    .flatMap(pageDiff -> pageDiff.getRegions().stream().map(region -> pageDiff.getPage() + ": "
+                            + region.getX() + " " + region.getY() + " " + region.getWidth() + " " + region.getHeight()))
+                    .toList();
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static ComparisonProgressListener differingPagesListener(List<Integer> differingPages) {
+        return new ComparisonProgressListener() {
+            @Override
+            public void pageCompared(int pageIndex, boolean different) {
+                if (different) {
+                    differingPages.add(pageIndex);
+                }
+            }
+        };
+    }
+
+    private static PdfCompareProperties properties() {
+        PdfCompareProperties properties = new PdfCompareProperties();
+        properties.getImage().setDpi(72);
+        properties.getImage().setBandParallelism(1);
+        properties.getPageCache().setEnabled(false);
+        return properties;
+    }
+
+    /**
+     * A letter page with a line of text per string.
+     */
+    private File pdf(String name, String... pages) throws IOException {
+        return pdf(name, Arrays.stream(pages).map(text -> text(72, 700, 24, text)).toArray(PageContent[]::new));
+    }
+
+    private File pdf(String name, PageContent... pages) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (PDDocument document = new PDDocument()) {
+            for (PageContent content : pages) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    content.draw(contentStream);
+                }
+            }
+            document.save(file);
+        }
+        return file;
+    }
+
+    private static PageContent text(float x, float y, float fontSize, String text) {
+        return contentStream -> {
+            contentStream.beginText();
+            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), fontSize);
+            contentStream.newLineAtOffset(x, y);
+            contentStream.showText(text);
+            contentStream.endText();
+        };
+    }
+
+    /**
+     * A vertical hairline, {@code gray} 1 is white.
+     */
+    private static PageContent line(float width, float gray) {
+        return contentStream -> {
+            contentStream.setLineWidth(width);
+            contentStream.setStrokingColor(gray);
+            contentStream.moveTo(300, 100);
+            contentStream.lineTo(300, 700);
+            contentStream.stroke();
+        };
+    }
+
+    private static PageContent fill(float gray) {
+        return contentStream -> {
+            contentStream.setNonStrokingColor(gray);
+            contentStream.addRect(100, 100, 20, 20);
+            contentStream.fill();
+        };
+    }
+
+    @FunctionalInterface
+    private interface PageContent {
+        void draw(PDPageContentStream contentStream) throws IOException;
+    }
+
+    /**
+     * Saves the diff PDFs in the temp folder of the test instead of the home folder.
+     */
+    private class TempDirFileService implements FileService {
+
+        @Override
+        public String uploadFile(MultipartFile file, String tag) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String saveFile(PDDocument document, String tag, String filename) throws Exception {
+            File file = tempDir.resolve((Objects.isNull(filename) ? tag : filename) + ".pdf").toFile();
+            document.save(file);
+            return file.getPath();
+        }
+
+        @Override
+        public File getFile(String filename) {
+            return tempDir.resolve(filename).toFile();
+        }
+    }
+}
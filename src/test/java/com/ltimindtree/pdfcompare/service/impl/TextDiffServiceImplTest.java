@@ -0,0 +1,151 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.ComparisonProgressListener;
+import com.ltimindtree.pdfcompare.web.dto.TextChange;
+import com.ltimindtree.pdfcompare.web.dto.TextSpan;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextDiffServiceImplTest {
+
+    private static final float LEFT = 72;
+    private static final float FIRST_LINE = 700;
+    private static final float LINE_HEIGHT = 20;
+
+    @TempDir
+    Path tempDir;
+
+    private final PageRenderServiceImpl pageRenderService = new PageRenderServiceImpl(new PdfCompareProperties());
+    private final ComparisonSchedulerImpl comparisonScheduler =
+            new ComparisonSchedulerImpl(new PdfCompareProperties(), new SimpleMeterRegistry());
+    private final TextDiffServiceImpl textDiffService = new TextDiffServiceImpl(pageRenderService, comparisonScheduler);
+
+    @AfterEach
+    void shutdown() {
+        pageRenderService.shutdown();
+        comparisonScheduler.shutdown();
+    }
+
+    @Test
+    void linesAndWordsAreDiffed() throws Exception {
+        File original = pdf("original.pdf", null,
+                List.of("alpha beta gamma", "same line"),
+                List.of("delta epsilon", "removed line"));
+        File modified = pdf("modified.pdf", null,
+                List.of("alpha BETA gamma", "same line"),
+                List.of("new line", "delta epsilon"));
+
+        List<TextChange> changes = textDiffService.compare(original, modified, ComparisonProgressListener.NONE);
+
+        assertEquals(List.of("replace", "insert", "delete"), changes.stream().map(TextChange::getOperation).toList());
+
+        TextChange replace = changes.get(0);
+        assertEquals(List.of("1:alpha beta gamma"), spans(replace.getOriginal()));
+        assertEquals(List.of("1:alpha BETA gamma"), spans(replace.getModified()));
+        assertEquals(1, replace.getWords().size());
+        TextChange word = replace.getWords().get(0);
+        assertEquals("replace", word.getOperation());
+        assertEquals(List.of("1:beta"), spans(word.getOriginal()));
+        assertEquals(List.of("1:BETA"), spans(word.getModified()));
+        // the changed word lies inside its line, right of the first word
+        float[] lineBox = replace.getModified().get(0).getBox();
+        float[] wordBox = word.getModified().get(0).getBox();
+        assertTrue(wordBox[0] > lineBox[0] && wordBox[2] < lineBox[2]);
+        assertLineAt(lineBox, LEFT, FIRST_LINE);
+
+        TextChange insert = changes.get(1);
+        assertEquals(List.of(), insert.getOriginal());
+        assertEquals(List.of("2:new line"), spans(insert.getModified()));
+        assertNull(insert.getWords());
+        assertLineAt(insert.getModified().get(0).getBox(), LEFT, FIRST_LINE);
+
+        TextChange delete = changes.get(2);
+        assertEquals(List.of("2:removed line"), spans(delete.getOriginal()));
+        assertEquals(List.of(), delete.getModified());
+        assertLineAt(delete.getOriginal().get(0).getBox(), LEFT, FIRST_LINE - LINE_HEIGHT);
+    }
+
+    @Test
+    void boxesAreInUserSpaceOfCroppedPages() throws Exception {
+        PDRectangle cropBox = new PDRectangle(50, 100, 400, 600);
+        File original = pdf("original.pdf", cropBox, List.of("old text"));
+        File modified = pdf("modified.pdf", cropBox, List.of("new text"));
+
+        List<TextChange> changes = textDiffService.compare(original, modified, ComparisonProgressListener.NONE);
+
+        assertEquals(1, changes.size());
+        // not moved by the lower left corner of the crop box
+        assertLineAt(changes.get(0).getModified().get(0).getBox(), LEFT, FIRST_LINE);
+        assertLineAt(changes.get(0).getWords().get(0).getModified().get(0).getBox(), LEFT, FIRST_LINE);
+    }
+
+    @Test
+    void identicalTextHasNoChanges() throws Exception {
+        File original = pdf("original.pdf", null, List.of("same line"));
+        File modified = pdf("modified.pdf", null, List.of("same line"));
+
+        assertEquals(List.of(), textDiffService.compare(original, modified, ComparisonProgressListener.NONE));
+    }
+
+    /**
+     * @param box box of a line starting at the given baseline point
+     */
+    private static void assertLineAt(float[] box, float x, float baseline) {
+        assertEquals(x, box[0], 0.01);
+        assertTrue(box[1] < baseline && baseline < box[3], () -> "baseline " + baseline + " outside " + box[1] + ".." + box[3]);
+        assertTrue(box[3] - box[1] < LINE_HEIGHT);
+    }
+
+    private static List<String> spans(List<TextSpan> spans) {
+        return spans.stream().map(span -> span.getPage() + ":" + span.getText()).toList();
+    }
+
+    /**
+     * A page per list of lines, the lines at the same place in user space on every page.
+     *
+     * @param cropBox crop box of the pages, {@code null} for the whole page
+     */
+    @SafeVarargs
+    private File pdf(String name, PDRectangle cropBox, List<String>... pages) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (List<String> lines : pages) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                if (Objects.nonNull(cropBox)) {
+                    page.setCropBox(cropBox);
+                }
+                document.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    contentStream.beginText();
+                    contentStream.setFont(font, 12);
+                    contentStream.newLineAtOffset(LEFT, FIRST_LINE);
+                    for (String line : lines) {
+                        contentStream.showText(line);
+                        contentStream.newLineAtOffset(0, -LINE_HEIGHT);
+                    }
+                    contentStream.endText();
+                }
+            }
+            document.save(file);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,103 @@
+package com.ltimindtree.pdfcompare.service.impl;
+
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextPositionIndexTest {
+
+    private static final float PAGE_HEIGHT = 792;
+
+    @Test
+    void pageNumbersKeepPositionsApart() {
+        TextPositionIndex index = new TextPositionIndex();
+        index.add(2, position("a", 100, 200, 12));
+
+        assertTrue(index.contains(2, position("a", 100, 200, 12)));
+        assertFalse(index.contains(1, position("a", 100, 200, 12)));
+        assertFalse(index.contains(3, position("a", 100, 200, 12)));
+
+        index.add(TextPositionIndex.ANY_PAGE, position("b", 50, 60, 12));
+
+        assertTrue(index.contains(1, position("b", 50, 60, 12)));
+        assertTrue(index.contains(7, position("b", 50, 60, 12)));
+    }
+
+    @Test
+    void positionsAcrossACellBorderMatch() {
+        TextPositionIndex index = new TextPositionIndex();
+        index.add(1, position("a", 9.9996f, 20.0004f, 12));
+
+        assertTrue(index.contains(1, position("a", 10.0004f, 19.9996f, 12)));
+        assertFalse(index.contains(1, position("a", 10.0008f, 20, 12)));
+    }
+
+    @Test
+    void matchesTheLinearSearch() {
+        Random random = new Random(20);
+        TextPositionIndex index = new TextPositionIndex();
+        Map<Integer, List<TextPosition>> byPage = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            // ANY_PAGE and pages 1 to 3
+            int page = random.nextInt(4);
+            TextPosition textPosition = randomPosition(random);
+            index.add(page, textPosition);
+            byPage.computeIfAbsent(page, key -> new ArrayList<>()).add(textPosition);
+        }
+        List<TextPosition> indexed = byPage.values().stream().flatMap(List::stream).toList();
+
+        for (int i = 0; i < 20_000; i++) {
+            int page = 1 + random.nextInt(3);
+            TextPosition query;
+            if (random.nextBoolean()) {
+                // near an indexed position, within the tolerance or just beyond it
+                TextPosition near = indexed.get(random.nextInt(indexed.size()));
+                query = position(near.getUnicode(), near.getX() + offset(random), PAGE_HEIGHT - near.getY() + offset(random),
+                        random.nextInt(10) == 0 ? near.getFontSize() + 1 : near.getFontSize());
+            } else {
+                query = randomPosition(random);
+            }
+
+            boolean expected = DrawPrintTextLocations.containsTextPosition(byPage.getOrDefault(page, List.of()), query)
+                    || DrawPrintTextLocations.containsTextPosition(
+                    byPage.getOrDefault(TextPositionIndex.ANY_PAGE, List.of()), query);
+            assertEquals(expected, index.contains(page, query), () -> "page " + page + " " + query.getUnicode()
+                    + " at " + query.getX() + "," + query.getY());
+        }
+    }
+
+    /**
+     * Positions on a few cell borders and just beside them, so that neighbouring cells are looked at.
+     */
+    private static TextPosition randomPosition(Random random) {
+        float x = random.nextInt(20) + offset(random);
+        float y = random.nextInt(20) + offset(random);
+        return position(String.valueOf((char) ('a' + random.nextInt(3))), x, y, 10 + random.nextInt(2));
+    }
+
+    private static float offset(Random random) {
+        return switch (random.nextInt(5)) {
+            case 0 -> 0;
+            case 1 -> 0.0004f;
+            case 2 -> -0.0004f;
+            case 3 -> 0.0012f;
+            default -> random.nextFloat();
+        };
+    }
+
+    /**
+     * @param y from the bottom of the page, {@link TextPosition#getY()} is from the top
+     */
+    private static TextPosition position(String unicode, float x, float y, float fontSize) {
+        return new TextPosition(0, 612, PAGE_HEIGHT, Matrix.getTranslateInstance(x, y), x + 5, y, 8, 5, 3,
+                unicode, new int[]{unicode.charAt(0)}, null, fontSize, (int) fontSize);
+    }
+}
@@ -0,0 +1,107 @@
+package com.ltimindtree.pdfcompare.text;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlyphExtractorTest {
+
+    private static final String LIBERATION_SANS = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    @Test
+    void onlyTheChangedPageDiffers() throws IOException {
+        try (PDDocument original = Loader.loadPDF(standardFontPdf("first page", "second page"));
+             PDDocument modified = Loader.loadPDF(standardFontPdf("first page", "second line"))) {
+            GlyphExtractor extractor = new GlyphExtractor();
+            GlyphStore originalGlyphs = extractor.extract(original, 2);
+            GlyphStore modifiedGlyphs = extractor.extract(modified, 2);
+
+            assertTrue(originalGlyphs.samePage(modifiedGlyphs, 0));
+            assertFalse(originalGlyphs.samePage(modifiedGlyphs, 1));
+        }
+    }
+
+    @Test
+    void pageWithoutTextHasNoGlyphs() throws IOException {
+        try (PDDocument document = Loader.loadPDF(standardFontPdf("first page", "", "third page"))) {
+            GlyphStore glyphs = new GlyphExtractor().extract(document, 3);
+
+            assertEquals(glyphs.pageEnd(0), glyphs.pageStart(1));
+            assertEquals(glyphs.pageStart(1), glyphs.pageEnd(1));
+            assertEquals(glyphs.pageEnd(1), glyphs.pageStart(2));
+            assertEquals(glyphs.size(), glyphs.pageEnd(2));
+            assertTrue(glyphs.pageEnd(2) > glyphs.pageStart(2));
+        }
+    }
+
+    @Test
+    void resubsettedFontsShareTheirFamily() throws IOException {
+        try (PDDocument original = Loader.loadPDF(embeddedFontPdf("Hello"));
+             PDDocument modified = Loader.loadPDF(embeddedFontPdf("Help"));
+             PDDocument standard = Loader.loadPDF(standardFontPdf("Hello"))) {
+            GlyphExtractor extractor = new GlyphExtractor();
+            GlyphStore originalGlyphs = extractor.extract(original, 1);
+            GlyphStore modifiedGlyphs = extractor.extract(modified, 1);
+            GlyphStore standardGlyphs = extractor.extract(standard, 1);
+
+            // each subset has a tag and glyphs of its own
+            assertNotEquals(originalGlyphs.fontId(0), modifiedGlyphs.fontId(0));
+            assertEquals(extractor.fontFamily(originalGlyphs.fontId(0)), extractor.fontFamily(modifiedGlyphs.fontId(0)));
+            assertNotEquals(extractor.fontFamily(originalGlyphs.fontId(0)), extractor.fontFamily(standardGlyphs.fontId(0)));
+        }
+    }
+
+    /**
+     * A page per text, in a standard font which is not embedded, so equal pages have equal font dictionaries.
+     */
+    private static byte[] standardFontPdf(String... pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDFont font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (String text : pages) {
+                addPage(document, font, text);
+            }
+            return save(document);
+        }
+    }
+
+    /**
+     * The text in a subset of a font embedded anew, with a subset tag of its own.
+     */
+    private static byte[] embeddedFontPdf(String text) throws IOException {
+        try (PDDocument document = new PDDocument();
+             InputStream fontStream = GlyphExtractorTest.class.getResourceAsStream(LIBERATION_SANS)) {
+            addPage(document, PDType0Font.load(document, fontStream), text);
+            return save(document);
+        }
+    }
+
+    private static void addPage(PDDocument document, PDFont font, String text) throws IOException {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            contentStream.beginText();
+            contentStream.setFont(font, 12);
+            contentStream.newLineAtOffset(72, 700);
+            contentStream.showText(text);
+            contentStream.endText();
+        }
+    }
+
+    private static byte[] save(PDDocument document) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.save(out);
+        return out.toByteArray();
+    }
+}
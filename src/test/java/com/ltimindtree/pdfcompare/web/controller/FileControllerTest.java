@@ -0,0 +1,123 @@
+package com.ltimindtree.pdfcompare.web.controller;
+
+import com.ltimindtree.pdfcompare.config.PdfCompareProperties;
+import com.ltimindtree.pdfcompare.service.FileService;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class FileControllerTest {
+
+    private static final String CONTENT = "%PDF-1.7 diff of the documents";
+
+    @TempDir
+    Path tempDir;
+
+    private FileController fileController;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(tempDir.resolve("diff.pdf"), CONTENT);
+        fileController = new FileController(null, new TempDirFileService(), new PdfCompareProperties());
+        mockMvc = MockMvcBuilders.standaloneSetup(fileController).build();
+    }
+
+    @AfterEach
+    void shutdown() {
+        fileController.shutdown();
+    }
+
+    @Test
+    void wholeFileHasAnETag() throws Exception {
+        String eTag = mockMvc.perform(get("/api/files").param("filename", "diff.pdf"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertNotNull(eTag);
+        assertTrue(eTag.startsWith("W/\""));
+    }
+
+    @Test
+    void rangeIsAnsweredWithThatPartOfTheFile() throws Exception {
+        mockMvc.perform(get("/api/files").param("filename", "diff.pdf")
+                        .header(HttpHeaders.RANGE, "bytes=9-12"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 9-12/" + CONTENT.length()))
+                .andExpect(content().bytes(CONTENT.substring(9, 13).getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void unchangedFileIsNotSentAgain() throws Exception {
+        String eTag = mockMvc.perform(get("/api/files").param("filename", "diff.pdf"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/files").param("filename", "diff.pdf")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void rewrittenFileIsSentAgain() throws Exception {
+        String eTag = mockMvc.perform(get("/api/files").param("filename", "diff.pdf"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Files.writeString(tempDir.resolve("diff.pdf"), CONTENT + " rewritten");
+
+        mockMvc.perform(get("/api/files").param("filename", "diff.pdf")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT + " rewritten"));
+    }
+
+    @Test
+    void pathTraversalIsRejected() throws Exception {
+        mockMvc.perform(get("/api/files").param("filename", "../diff.pdf"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/files").param("filename", "folder/diff.pdf"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void unknownFileIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/files").param("filename", "other.pdf"))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Serves the files of the temp folder of the test instead of the home folder.
+     */
+    private class TempDirFileService implements FileService {
+
+        @Override
+        public String uploadFile(MultipartFile file, String tag) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String saveFile(PDDocument document, String tag, String filename) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public File getFile(String filename) {
+            return tempDir.resolve(filename).toFile();
+        }
+    }
+}